@@ -0,0 +1,180 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk construction of TrieAutocomplete and BinarySearchAutocomplete on a
+ * ForkJoinPool. Instead of adding terms one at a time, the terms are sorted
+ * once with Arrays.parallelSort; the sorted array is then already the
+ * BinarySearchAutocomplete, and a trie is built top-down from it, where
+ * each child's subtrie covers a contiguous run of the sorted terms. Subtries
+ * for large runs (the first-character partitions, and big partitions below
+ * them) are built as separate fork-join tasks, and every node's
+ * mySubtreeMaxWeight is set once, as its subtrie is completed, instead of
+ * being repaired by add on the way back up to the root.
+ *
+ * Run main with a term file to report build times for each pool size up to
+ * the number of available cores.
+ *
+ */
+public class AutocompleteBuilder {
+
+	/**
+	 * Runs of at least this many terms get their own task
+	 */
+	private static final int FORK_THRESHOLD = 1 << 12;
+
+	/**
+	 * Builds a TrieAutocomplete equivalent to new TrieAutocomplete(terms,
+	 * weights), using the given pool.
+	 *
+	 * @throws NullPointerException
+	 *             if either array is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different lengths or a weight is
+	 *             negative
+	 */
+	public static TrieAutocomplete buildTrie(String[] terms, double[] weights, ForkJoinPool pool) {
+		Term[] sorted = Term.distinct(sortTerms(terms, weights, pool));
+		return new TrieAutocomplete(pool.invoke(new TrieTask(sorted, 0, sorted.length, 0, '-', null)));
+	}
+
+	/**
+	 * Builds a BinarySearchAutocomplete equivalent to new
+	 * BinarySearchAutocomplete(terms, weights), using the given pool.
+	 *
+	 * @throws NullPointerException
+	 *             if either array is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different lengths or a weight is
+	 *             negative
+	 */
+	public static BinarySearchAutocomplete buildBinarySearch(String[] terms, double[] weights, ForkJoinPool pool) {
+		return new BinarySearchAutocomplete(sortTerms(terms, weights, pool));
+	}
+
+	/**
+	 * Creates the Terms and sorts them lexicographically, both in parallel on
+	 * pool. The sort is stable, so repeated words stay in input order.
+	 */
+	private static Term[] sortTerms(String[] terms, double[] weights, ForkJoinPool pool) {
+		if (terms == null || weights == null)
+			throw new NullPointerException("One or more arguments null");
+		if (terms.length != weights.length)
+			throw new IllegalArgumentException("terms and weights are not the same length");
+		Term[] sorted = new Term[terms.length];
+		pool.submit(() -> {
+			IntStream.range(0, terms.length).parallel().forEach(i -> sorted[i] = new Term(terms[i], weights[i]));
+			Arrays.parallelSort(sorted);
+		}).join();
+		return sorted;
+	}
+
+	/**
+	 * Builds the subtrie for sorted[lo..hi-1], all of which share their first
+	 * depth characters, and returns its root, a Node for character ch.
+	 */
+	@SuppressWarnings("serial")
+	private static class TrieTask extends RecursiveTask<Node> {
+		private final Term[] mySorted;
+		private final int myLo, myHi, myDepth;
+		private final char myChar;
+		private final Node myParent;
+
+		TrieTask(Term[] sorted, int lo, int hi, int depth, char ch, Node parent) {
+			mySorted = sorted;
+			myLo = lo;
+			myHi = hi;
+			myDepth = depth;
+			myChar = ch;
+			myParent = parent;
+		}
+
+		@Override
+		protected Node compute() {
+			return build(mySorted, myLo, myHi, myDepth, myChar, myParent);
+		}
+	}
+
+	private static Node build(Term[] sorted, int lo, int hi, int depth, char ch, Node parent) {
+		Node node = new Node(ch, parent, 0);
+		if (lo < hi && sorted[lo].getWord().length() == depth) {
+			node.isWord = true;
+			node.myWord = sorted[lo].getWord();
+			node.myWeight = sorted[lo].getWeight();
+			node.mySubtreeMaxWeight = node.myWeight;
+			lo++;
+		}
+		ArrayList<TrieTask> forked = new ArrayList<TrieTask>();
+		while (lo < hi) {
+			char next = sorted[lo].getWord().charAt(depth);
+			int stop = lo + 1;
+			while (stop < hi && sorted[stop].getWord().charAt(depth) == next)
+				stop++;
+			if (stop - lo >= FORK_THRESHOLD) {
+				TrieTask task = new TrieTask(sorted, lo, stop, depth + 1, next, node);
+				task.fork();
+				forked.add(task);
+			} else {
+				addChild(node, build(sorted, lo, stop, depth + 1, next, node));
+			}
+			lo = stop;
+		}
+		for (TrieTask task : forked) {
+			addChild(node, task.join());
+		}
+		return node;
+	}
+
+	private static void addChild(Node node, Node child) {
+		node.addChild(child);
+		node.mySubtreeMaxWeight = Math.max(node.mySubtreeMaxWeight, child.mySubtreeMaxWeight);
+	}
+
+	private static String[] ourTerms;
+	private static double[] ourWeights;
+
+	/**
+	 * Returns the fastest of three runs of build, in seconds.
+	 */
+	private static double time(Runnable build) {
+		double best = Double.MAX_VALUE;
+		for (int trial = 0; trial < 3; trial++) {
+			long start = System.nanoTime();
+			build.run();
+			best = Math.min(best, (System.nanoTime() - start) / 1E9);
+		}
+		return best;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("usage: java AutocompleteBuilder <termfile>");
+			System.exit(1);
+		}
+		TermFileLoader data = new TermFileLoader(new File(args[0]), false);
+		System.out.println(data);
+		ourTerms = data.getTerms();
+		ourWeights = data.getWeights();
+		double trie = time(() -> new TrieAutocomplete(ourTerms, ourWeights));
+		double binary = time(() -> new BinarySearchAutocomplete(ourTerms, ourWeights));
+		System.out.printf("%-8s %10s %8s %10s %8s%n", "threads", "trie(s)", "speedup", "binary(s)", "speedup");
+		System.out.printf("%-8s %10.3f %8s %10.3f %8s%n", "add/sort", trie, "", binary, "");
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int p = 1;; p *= 2) {
+			int threads = Math.min(p, cores);
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			double bulkTrie = time(() -> buildTrie(ourTerms, ourWeights, pool));
+			double bulkBinary = time(() -> buildBinarySearch(ourTerms, ourWeights, pool));
+			System.out.printf("%-8d %10.3f %8.2f %10.3f %8.2f%n", threads, bulkTrie, trie / bulkTrie, bulkBinary,
+					binary / bulkBinary);
+			pool.shutdown();
+			if (threads == cores)
+				break;
+		}
+	}
+}
@@ -43,15 +43,11 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.LinkedList;
 import java.util.Locale;
-import java.util.Queue;
-import java.util.Scanner;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -138,6 +134,8 @@ public class AutocompleteGUI extends JFrame {
 	private class AutocompletePanel extends JPanel {
 		private final JTextField searchText;
 		private Autocompletor auto;
+		// follows the text field, so each keystroke narrows the last search
+		private CompletionSession session;
 		private String[] results = new String[k];
 		private JList<String> suggestions;
 
@@ -150,32 +148,29 @@ public class AutocompleteGUI extends JFrame {
 			super();
 
 			// read in the data
-			Scanner in;
 			try {
-				in = new Scanner(new File(filename), CHARSET);
-				in.useLocale(LOCALE);
-				int N = Integer.parseInt(in.nextLine());
-				String[] terms = new String[N];
-				double[] weights = new double[N];
-				for (int i = 0; i < N; i++) {
-					String line = in.nextLine();
-					int tab = line.indexOf('\t');
-					weights[i] = Double.parseDouble(line.substring(0, tab).trim());
-					terms[i] = line.substring(tab + 1);
+				if (filename.endsWith(MappedAutocomplete.SUFFIX)) {
+					// a prebuilt index is opened as is, without parsing
+					auto = new MappedAutocomplete(new File(filename));
+				} else {
+					TermFileLoader data = new TermFileLoader(new File(filename), false);
+					String[] terms = data.getTerms();
+					double[] weights = data.getWeights();
+					// create the autocomplete object
+					auto = (Autocompletor) Class.forName(autocompletorClassName)
+							.getDeclaredConstructor(String[].class, double[].class).newInstance(terms, weights);
 				}
-				// create the autocomplete object
-				auto = (Autocompletor) Class.forName(autocompletorClassName)
-						.getDeclaredConstructor(String[].class, double[].class).newInstance(terms, weights);
 
 			} catch (InstantiationException | IllegalAccessException | ClassNotFoundException | IllegalArgumentException
 					| InvocationTargetException | NoSuchMethodException | SecurityException e1) {
 				e1.printStackTrace();
 				System.exit(1);
-			} catch (FileNotFoundException e2) {
+			} catch (IOException e2) {
 				System.out.println("Cannot read file " + filename);
 				System.exit(1);
 
 			}
+			session = auto.newSession();
 
 			GroupLayout layout = new GroupLayout(this);
 			this.setLayout(layout);
@@ -335,23 +330,19 @@ public class AutocompleteGUI extends JFrame {
 				suggestions.setVisible(false);
 			} else {
 				int textLen = text.length();
-				Queue<String> resultQ = new LinkedList<String>();
-				Queue<Double> ds = new LinkedList<Double>();
-				for (String term : auto.topMatches(text.toLowerCase(), k)) {
-					resultQ.add(term);
-					ds.add(auto.weightOf(term));
-				}
-				if (!resultQ.isEmpty()) {
-					results = new String[resultQ.size()];
+				session.setText(text.toLowerCase());
+				MatchList matches = session.weightedTopMatches(k);
+				if (!matches.isEmpty()) {
+					results = new String[matches.size()];
 					for (int i = 0; i < results.length; i++) {
-						results[i] = resultQ.remove();
+						results[i] = matches.getTerm(i);
 						/*
 						 * Modified to include the weights of each term and a
 						 * delimiter "|" to ensure that the search does not
 						 * include the weight.
 						 */
 						results[i] = "<html>" + results[i].substring(0, textLen) + "<b>" + results[i].substring(textLen)
-								+ "</b>" + "|<span style=\"color:#C0C0C0;\">" + String.format("%.0f",ds.remove()) + "</span></html>";
+								+ "</b>" + "|<span style=\"color:#C0C0C0;\">" + String.format("%.0f", matches.getWeight(i)) + "</span></html>";
 					}
 					suggestions.setListData(results);
 					suggestions.setVisible(true);
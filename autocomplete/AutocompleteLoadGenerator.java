@@ -0,0 +1,138 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Closed-loop load generator for AutocompleteServer. For each named
+ * implementation, serves the term file with it on a loopback port, then
+ * runs a number of clients, each on its own connection sending a TOP
+ * request for one to four of the first characters of a random term and
+ * waiting for the answer before sending the next. After a warmup, it
+ * reports throughput and latency percentiles measured at the clients, so
+ * they include the protocol and the socket round trip.
+ *
+ */
+public class AutocompleteLoadGenerator {
+
+	private static final int K = 10;
+	private static final int WARMUP_SECONDS = 2;
+
+	/**
+	 * One connection to a server and the latencies of its requests
+	 */
+	private static class Client implements Runnable {
+		private final Socket mySocket;
+		private final BufferedReader myIn;
+		private final Writer myOut;
+		private final String[] myTerms;
+		private final Random myRandom;
+		private final long myMeasureFrom, myEnd;
+		long[] myLatencies = new long[1 << 12];
+		int myCount;
+
+		Client(int port, String[] terms, long seed, long measureFrom, long end) throws IOException {
+			mySocket = new Socket(InetAddress.getLoopbackAddress(), port);
+			mySocket.setTcpNoDelay(true);
+			myIn = new BufferedReader(new InputStreamReader(mySocket.getInputStream(), StandardCharsets.UTF_8));
+			myOut = new BufferedWriter(new OutputStreamWriter(mySocket.getOutputStream(), StandardCharsets.UTF_8));
+			myTerms = terms;
+			myRandom = new Random(seed);
+			myMeasureFrom = measureFrom;
+			myEnd = end;
+		}
+
+		public void run() {
+			try (mySocket) {
+				long now;
+				while ((now = System.nanoTime()) < myEnd) {
+					String term = myTerms[myRandom.nextInt(myTerms.length)];
+					String prefix = term.substring(0, Math.min(1 + myRandom.nextInt(4), term.length()));
+					myOut.write("TOP " + K + " " + prefix + "\n");
+					myOut.flush();
+					String count = myIn.readLine();
+					if (count == null || count.startsWith("ERR"))
+						throw new IOException("Bad response: " + count);
+					for (int i = Integer.parseInt(count); i > 0; i--)
+						myIn.readLine();
+					if (now >= myMeasureFrom) {
+						if (myCount == myLatencies.length)
+							myLatencies = Arrays.copyOf(myLatencies, 2 * myCount);
+						myLatencies[myCount++] = System.nanoTime() - now;
+					}
+				}
+				myOut.write("QUIT\n");
+				myOut.flush();
+			} catch (IOException e) {
+				System.err.println("Client failed: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Runs clients against the server on port for the given number of
+	 * measured seconds, after the warmup, and returns every measured
+	 * latency, sorted.
+	 */
+	public static long[] run(int port, String[] terms, int clients, int seconds)
+			throws IOException, InterruptedException {
+		long measureFrom = System.nanoTime() + WARMUP_SECONDS * 1000000000L;
+		long end = measureFrom + seconds * 1000000000L;
+		Client[] running = new Client[clients];
+		Thread[] threads = new Thread[clients];
+		for (int c = 0; c < clients; c++) {
+			running[c] = new Client(port, terms, c, measureFrom, end);
+			threads[c] = new Thread(running[c], "load-client-" + c);
+			threads[c].start();
+		}
+		int total = 0;
+		for (int c = 0; c < clients; c++) {
+			threads[c].join();
+			total += running[c].myCount;
+		}
+		long[] latencies = new long[total];
+		int next = 0;
+		for (Client client : running) {
+			System.arraycopy(client.myLatencies, 0, latencies, next, client.myCount);
+			next += client.myCount;
+		}
+		Arrays.sort(latencies);
+		return latencies;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 1) {
+			System.err.println(
+					"usage: java AutocompleteLoadGenerator <termfile> [clients] [seconds] [implementation...]");
+			System.exit(1);
+		}
+		int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		String[] names = args.length > 3 ? Arrays.copyOfRange(args, 3, args.length)
+				: new String[] { "BinarySearchAutocomplete", "TrieAutocomplete" };
+		TermFileLoader data = new TermFileLoader(new File(args[0]), true);
+		System.out.println(data);
+		String[] terms = data.getTerms();
+		System.out.printf("%-30s %8s %10s %10s %10s %10s %10s%n", "", "clients", "requests", "req/s", "p50(us)",
+				"p99(us)", "p99.9(us)");
+		for (String name : names) {
+			try (AutocompleteServer server = new AutocompleteServer(
+					AutocompleteServer.create(name, terms, data.getWeights()), 0)) {
+				long[] latencies = run(server.getPort(), terms, clients, seconds);
+				System.out.printf("%-30s %8d %10d %10.0f %10.1f %10.1f %10.1f%n",
+						name + (server.usesVirtualThreads() ? " (virtual)" : ""), clients, latencies.length,
+						latencies.length / (double) seconds, AutocompletorBenchmark.percentile(latencies, 50) / 1E3,
+						AutocompletorBenchmark.percentile(latencies, 99) / 1E3,
+						AutocompletorBenchmark.percentile(latencies, 99.9) / 1E3);
+			}
+		}
+	}
+}
@@ -0,0 +1,218 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves an Autocompletor over a line protocol on the loopback interface,
+ * so implementations can be load-tested the way a front end would call
+ * them. Each connection is handled on its own thread: a virtual thread when
+ * the JVM has them (Java 21 and later), otherwise a thread from a cached
+ * pool. Requests and responses are UTF-8 lines:
+ *
+ * <pre>
+ * TOP k prefix    the count n of matches, then n lines of weight, tab, term
+ * MATCH prefix    the top match (an empty line if there is none)
+ * WEIGHT term     the weight of term
+ * QUIT            closes the connection
+ * </pre>
+ *
+ * The prefix or term is the rest of the line after the single space that
+ * follows the command (or k), so it may contain spaces or be empty. k may be
+ * at most MAX_K, since most implementations allocate in proportion to k
+ * before they search. A bad request, or one the Autocompletor fails on, is
+ * answered with a line starting "ERR" and the connection stays open.
+ *
+ * The Autocompletor must support concurrent queries. Run main to serve a
+ * term file with a chosen implementation; AutocompleteLoadGenerator drives
+ * a server with concurrent clients.
+ *
+ */
+public class AutocompleteServer implements Closeable {
+
+	/**
+	 * The largest k a TOP request may ask for
+	 */
+	public static final int MAX_K = 10000;
+
+	private final Autocompletor myAuto;
+	private final ServerSocket mySocket;
+	private final ExecutorService myHandlers;
+	private final boolean isVirtual;
+	private final Thread myAcceptor;
+	private final Set<Socket> myConnections = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Starts serving auto on the given loopback port, or on any free port if
+	 * port is 0.
+	 *
+	 * @throws NullPointerException
+	 *             if auto is null
+	 * @throws IOException
+	 *             if the port cannot be bound
+	 */
+	public AutocompleteServer(Autocompletor auto, int port) throws IOException {
+		if (auto == null)
+			throw new NullPointerException("auto is null");
+		myAuto = auto;
+		mySocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+		ExecutorService virtual = newVirtualThreadExecutor();
+		isVirtual = virtual != null;
+		myHandlers = isVirtual ? virtual : Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, "autocomplete-connection");
+			t.setDaemon(true);
+			return t;
+		});
+		myAcceptor = new Thread(this::accept, "autocomplete-accept");
+		myAcceptor.setDaemon(true);
+		myAcceptor.start();
+	}
+
+	/**
+	 * Returns an executor that runs each task on a new virtual thread, or
+	 * null if the JVM has none. It is looked up reflectively so that this
+	 * still compiles and runs on older JVMs.
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns whether connections are handled on virtual threads
+	 */
+	public boolean usesVirtualThreads() {
+		return isVirtual;
+	}
+
+	/**
+	 * Returns the port the server listens on
+	 */
+	public int getPort() {
+		return mySocket.getLocalPort();
+	}
+
+	private void accept() {
+		while (!mySocket.isClosed()) {
+			try {
+				Socket socket = mySocket.accept();
+				socket.setTcpNoDelay(true);
+				myHandlers.execute(() -> serve(socket));
+			} catch (IOException e) {
+				if (!mySocket.isClosed())
+					System.err.println("Could not accept connection: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Answers the requests on one connection until the client quits or
+	 * disconnects.
+	 */
+	private void serve(Socket socket) {
+		myConnections.add(socket);
+		try (Socket s = socket;
+				BufferedReader in = new BufferedReader(
+						new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+				Writer out = new BufferedWriter(
+						new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			// a connection that close missed ends at its next request
+			while ((line = in.readLine()) != null && !line.equals("QUIT") && !mySocket.isClosed()) {
+				answer(line, out);
+				out.flush();
+			}
+		} catch (SocketException e) {
+			// client went away
+		} catch (IOException e) {
+			System.err.println("Connection failed: " + e.getMessage());
+		} finally {
+			myConnections.remove(socket);
+		}
+	}
+
+	private void answer(String request, Writer out) throws IOException {
+		try {
+			if (request.startsWith("TOP ")) {
+				int space = request.indexOf(' ', 4);
+				if (space < 0)
+					throw new IllegalArgumentException("expected TOP k prefix");
+				int k = Integer.parseInt(request.substring(4, space));
+				if (k > MAX_K)
+					throw new IllegalArgumentException("k above " + MAX_K);
+				MatchList matches = myAuto.weightedTopMatches(request.substring(space + 1), k);
+				StringBuilder sb = new StringBuilder().append(matches.size()).append('\n');
+				for (int i = 0; i < matches.size(); i++)
+					sb.append(matches.getWeight(i)).append('\t').append(matches.getTerm(i)).append('\n');
+				out.write(sb.toString());
+			} else if (request.startsWith("MATCH ")) {
+				out.write(myAuto.topMatch(request.substring(6)) + "\n");
+			} else if (request.startsWith("WEIGHT ")) {
+				out.write(myAuto.weightOf(request.substring(7)) + "\n");
+			} else {
+				out.write("ERR unknown request\n");
+			}
+		} catch (RuntimeException e) {
+			// a bad request, including NumberFormatException for a bad k, or
+			// a query that failed, e.g. on a closed OffHeapTrieAutocomplete
+			out.write("ERR " + e.getMessage() + "\n");
+		}
+	}
+
+	/**
+	 * Stops accepting connections and closes the open ones.
+	 */
+	public void close() throws IOException {
+		mySocket.close();
+		for (Socket socket : myConnections)
+			socket.close();
+		myHandlers.shutdownNow();
+	}
+
+	/**
+	 * Creates the named Autocompletor class (e.g. TrieAutocomplete) from
+	 * terms and weights, through its (String[], double[]) constructor.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if there is no such class or constructor
+	 */
+	public static Autocompletor create(String name, String[] terms, double[] weights) {
+		try {
+			return (Autocompletor) Class.forName(name).getConstructor(String[].class, double[].class)
+					.newInstance(terms, weights);
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new IllegalArgumentException("Cannot create an Autocompletor named " + name, e);
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 1) {
+			System.err.println("usage: java AutocompleteServer <termfile> [port] [implementation]");
+			System.exit(1);
+		}
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : 7070;
+		String name = args.length > 2 ? args[2] : "TrieAutocomplete";
+		TermFileLoader data = new TermFileLoader(new File(args[0]), true);
+		System.out.println(data);
+		AutocompleteServer server = new AutocompleteServer(create(name, data.getTerms(), data.getWeights()), port);
+		System.out.println("Serving " + name + " on 127.0.0.1:" + server.getPort()
+				+ (server.usesVirtualThreads() ? " with virtual threads" : " with a thread pool"));
+		server.myAcceptor.join();
+	}
+}
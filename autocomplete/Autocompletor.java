@@ -26,4 +26,54 @@ public interface Autocompletor {
 	 */
 	public double weightOf(String term);
 
+	/**
+	 * Returns the same matches as topMatches, in the same order, together
+	 * with their weights. Autocompletors that have the weights at hand while
+	 * finding the matches override this; the default looks up each match
+	 * with weightOf.
+	 */
+	public default MatchList weightedTopMatches(String prefix, int k) {
+		MatchList ret = new MatchList(Math.min(k, 16));
+		for (String term : topMatches(prefix, k))
+			ret.add(term, weightOf(term));
+		return ret;
+	}
+
+	/**
+	 * Returns a new CompletionSession with an empty prefix. Autocompletors
+	 * that can narrow a search one character at a time override this; the
+	 * default session just remembers the prefix and runs a full query.
+	 */
+	public default CompletionSession newSession() {
+		Autocompletor auto = this;
+		return new CompletionSession() {
+			private final StringBuilder myText = new StringBuilder();
+
+			public void append(char ch) {
+				myText.append(ch);
+			}
+
+			public void backspace() {
+				if (myText.length() > 0)
+					myText.setLength(myText.length() - 1);
+			}
+
+			public String getText() {
+				return myText.toString();
+			}
+
+			public Iterable<String> topMatches(int k) {
+				return auto.topMatches(getText(), k);
+			}
+
+			public MatchList weightedTopMatches(int k) {
+				return auto.weightedTopMatches(getText(), k);
+			}
+
+			public String topMatch() {
+				return auto.topMatch(getText());
+			}
+		};
+	}
+
 }
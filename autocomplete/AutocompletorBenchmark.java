@@ -14,7 +14,15 @@ public class AutocompletorBenchmark {
 	public static Autocompletor getInstance(String[] words, double[] weights) {
 		return new BruteAutocomplete(words, weights);
 //		return new BinarySearchAutocomplete(words, weights);
+//		return new BinarySearchAutocomplete(words, weights, true);
+//		return new ColumnarBinarySearchAutocomplete(words, weights);
 //		return new TrieAutocomplete(words, weights);
+//		return new TrieAutocomplete(words, weights, 10);
+//		return new CompactTrieAutocomplete(words, weights);
+//		return new RadixTrieAutocomplete(words, weights);
+//		return new TernarySearchTreeAutocomplete(words, weights);
+//		return new FSTAutocomplete(words, weights);
+//		return new OffHeapTrieAutocomplete(words, weights);
 	}
 	// chooser allows users to select a file by navigating through
 	// directories
@@ -24,13 +32,12 @@ public class AutocompletorBenchmark {
 	/**
 	 * Brings up chooser for user to select a file
 	 * 
-	 * @return Scanner for user selected file, null if file not found
+	 * @return the user selected file, null if it cannot be read
 	 */
-	public static Scanner getScanner() {
+	public static File getFile() {
 		int retval = ourChooser.showOpenDialog(null);
 		if (retval == JFileChooser.APPROVE_OPTION) {
 			File f = ourChooser.getSelectedFile();
-			Scanner s;
 			try {
 				if (f.canRead()) {
 					System.out.println("Opening - " +  f.getCanonicalPath() + ".");
@@ -38,17 +45,32 @@ public class AutocompletorBenchmark {
 					System.out.println("Could not open selected file.");
 					return null;
 				}
-				s = new Scanner(f, CHARSET);
-				s.useLocale(LOCALE);
-				
 			} catch (IOException e) {
 				return null;
 			}
-			return s;
+			return f;
 		}
 		return null;
 	}
 
+	/**
+	 * Brings up chooser for user to select a file
+	 * 
+	 * @return Scanner for user selected file, null if file not found
+	 */
+	public static Scanner getScanner() {
+		File f = getFile();
+		if (f == null)
+			return null;
+		try {
+			Scanner s = new Scanner(f, CHARSET);
+			s.useLocale(LOCALE);
+			return s;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
 	public static long countNodes(Node root) {
 		long result = 1;
 		for (Node child : root.children.values())
@@ -56,46 +78,217 @@ public class AutocompletorBenchmark {
 		return result;
 	}
 
-		public static void main(String[] args) {
-		
-		Scanner in = null;
-		do {
-			in = getScanner();
-			
-		} while (in == null);
+	public static long countNodes(RadixNode root) {
+		long result = 1;
+		for (RadixNode child : root.children)
+			result += countNodes(child);
+		return result;
+	}
+
+	/**
+	 * Returns the number of bytes of heap in use after asking for a garbage
+	 * collection, so the difference of two calls approximates the memory
+	 * retained by whatever was built in between.
+	 */
+	public static long usedMemory() {
+		Runtime rt = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++)
+			System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	/**
+	 * Returns the p-th percentile (0 to 100) of sorted, using the nearest
+	 * rank, or 0 if sorted is empty.
+	 */
+	public static long percentile(long[] sorted, double p) {
+		if (sorted.length == 0)
+			return 0;
+		int rank = (int) Math.ceil(p / 100 * sorted.length);
+		return sorted[Math.min(sorted.length, Math.max(rank, 1)) - 1];
+	}
+
+	/**
+	 * Benchmarks a prebuilt MappedAutocomplete index file: opening it takes
+	 * the place of parsing and building.
+	 */
+	public static void benchmarkIndex(File file) throws IOException {
+		long startTime = System.nanoTime();
+		MappedAutocomplete auto = new MappedAutocomplete(file);
+		System.out.println("Benchmarking " + auto.getClass().getName() + "...");
+		System.out.println("Found " + auto.size() + " words");
+		System.out.println("Time to initialize - " + (System.nanoTime() - startTime) / 1E9);
+		String randomWord = "";
+		while (randomWord.length() <= 2)
+			randomWord = auto.termAt(ourRandom.nextInt(auto.size()));
+		benchmarkQueries(auto, randomWord);
+	}
+
+	/**
+	 * Benchmarks the term or index file named by the first argument, or one
+	 * chosen with a file dialog if there is none. For repeatable measurements
+	 * across sizes and implementations, see jmh/AutocompletorBenchmarks.
+	 */
+	public static void main(String[] args) throws IOException {
+		File file = null;
+		if (args.length > 0)
+			file = new File(args[0]);
+		while (file == null)
+			file = getFile();
+		if (file.getName().endsWith(MappedAutocomplete.SUFFIX)) {
+			benchmarkIndex(file);
+			return;
+		}
 		
 		int N = 0;
 		String[] terms = null;
 		double[] weights = null;
 		try {
-			N = Integer.parseInt(in.nextLine());
-			terms = new String[N];
-			weights = new double[N];
-
-			for (int i = 0; i < N; i++) {
-				String line = in.nextLine();
-				int tab = line.indexOf('\t');
-				weights[i] = Double.parseDouble(line.substring(0, tab).trim());
-				terms[i] = line.substring(tab + 1).toLowerCase();
-			}
-		} catch (Exception e) { //could be any parsing related exception
-			System.err.println("File is malformatted");
+			TermFileLoader data = new TermFileLoader(file, true);
+			System.out.println(data);
+			terms = data.getTerms();
+			weights = data.getWeights();
+			N = terms.length;
+		} catch (IOException e) { //could be any parsing related exception
+			System.err.println("File is malformatted: " + e.getMessage());
 			System.exit(0);
 		}
+		long memoryBefore = usedMemory();
 		long startTime = System.nanoTime();
 		Autocompletor auto = getInstance(terms, weights);
 		System.out.println("Benchmarking " + auto.getClass().getName() + "...");
 		System.out.println("Found " + N + " words");
 		System.out.println("Time to initialize - " + (System.nanoTime() - startTime) / 1E9);
+		System.out.println("Memory used - " + (usedMemory() - memoryBefore) / 1E6 + " MB");
 		if (auto instanceof TrieAutocomplete)
 			System.out.println("Created " + countNodes(((TrieAutocomplete) auto).myRoot) + " nodes");
+		if (auto instanceof RadixTrieAutocomplete)
+			System.out.println("Created " + countNodes(((RadixTrieAutocomplete) auto).myRoot) + " nodes");
+		if (auto instanceof CompactTrieAutocomplete)
+			System.out.println("Created " + ((CompactTrieAutocomplete) auto).nodeCount() + " nodes in "
+					+ ((CompactTrieAutocomplete) auto).sizeInBytes() / 1E6 + " MB of arrays");
+		if (auto instanceof TernarySearchTreeAutocomplete)
+			System.out.println("Created " + ((TernarySearchTreeAutocomplete) auto).nodeCount() + " nodes in "
+					+ ((TernarySearchTreeAutocomplete) auto).sizeInBytes() / 1E6 + " MB of arrays");
+		if (auto instanceof FSTAutocomplete)
+			System.out.println("Created an FST of " + ((FSTAutocomplete) auto).sizeInBytes() / 1E6 + " MB");
 		String randomWord = "";
 		while (randomWord.length() <= 2)
 			randomWord = terms[ourRandom.nextInt(terms.length)];
+		benchmarkQueries(auto, randomWord);
+		benchmarkTyping(auto, terms);
+		if (auto instanceof TrieAutocomplete) {
+			benchmarkFuzzy((TrieAutocomplete) auto, terms);
+			benchmarkUpdates((TrieAutocomplete) auto, terms);
+		}
+	}
+
+	/**
+	 * Times typing random terms one character at a time, asking for the top
+	 * 10 matches after every keystroke, first with a new topMatches query per
+	 * keystroke and then with a CompletionSession.
+	 */
+	public static void benchmarkTyping(Autocompletor auto, String[] terms) {
+		String[] typed = new String[1000];
+		int keystrokes = 0;
+		for (int i = 0; i < typed.length; i++) {
+			typed[i] = terms[ourRandom.nextInt(terms.length)];
+			keystrokes += typed[i].length();
+		}
+		long startTime = System.nanoTime();
+		for (String term : typed) {
+			for (int j = 1; j <= term.length(); j++)
+				auto.topMatches(term.substring(0, j), 10);
+		}
+		double scratch = (System.nanoTime() - startTime) / 1E3 / keystrokes;
+		startTime = System.nanoTime();
+		CompletionSession session = auto.newSession();
+		for (String term : typed) {
+			session.setText("");
+			for (int j = 0; j < term.length(); j++) {
+				session.append(term.charAt(j));
+				session.topMatches(10);
+			}
+		}
+		double incremental = (System.nanoTime() - startTime) / 1E3 / keystrokes;
+		System.out.printf("Time per keystroke - %.2f us from scratch, %.2f us with a session%n", scratch,
+				incremental);
+	}
+
+	/**
+	 * Times topMatches(prefix, 10) against fuzzy topMatches(prefix, maxEdits,
+	 * 10) for maxEdits 1 and 2, where each prefix is the first 3 to 8
+	 * characters of a random term with one character replaced.
+	 */
+	public static void benchmarkFuzzy(TrieAutocomplete auto, String[] terms) {
+		String[] prefixes = new String[1000];
+		for (int i = 0; i < prefixes.length; i++) {
+			String term = terms[ourRandom.nextInt(terms.length)];
+			char[] prefix = term.substring(0, Math.min(term.length(), 3 + ourRandom.nextInt(6))).toCharArray();
+			prefix[ourRandom.nextInt(prefix.length)] = (char) ('a' + ourRandom.nextInt(26));
+			prefixes[i] = new String(prefix);
+		}
+		long startTime = System.nanoTime();
+		for (String prefix : prefixes)
+			auto.topMatches(prefix, 10);
+		double exact = (System.nanoTime() - startTime) / 1E3 / prefixes.length;
+		System.out.printf("Time for topMatches(prefix, 10) - %.1f us%n", exact);
+		for (int maxEdits = 1; maxEdits <= 2; maxEdits++) {
+			startTime = System.nanoTime();
+			for (String prefix : prefixes)
+				auto.topMatches(prefix, maxEdits, 10);
+			double fuzzy = (System.nanoTime() - startTime) / 1E3 / prefixes.length;
+			System.out.printf("Time for topMatches(prefix, %d, 10) - %.1f us (%.1fx)%n", maxEdits, fuzzy,
+					fuzzy / exact);
+		}
+	}
+
+	/**
+	 * Times a stream of operations on random terms, of which the given
+	 * fractions are updateWeight calls (scaling the weight by 0.5 to 2) and
+	 * the rest topMatches(prefix, 10) for the term's first two characters.
+	 * Changes the weights in auto.
+	 */
+	public static void benchmarkUpdates(TrieAutocomplete auto, String[] terms) {
+		int ops = 200000;
+		double[] updateFractions = { 0.1, 0.5, 0.9 };
+		for (double fraction : updateFractions) {
+			int updates = 0;
+			long startTime = System.nanoTime();
+			for (int i = 0; i < ops; i++) {
+				String term = terms[ourRandom.nextInt(terms.length)];
+				if (ourRandom.nextDouble() < fraction) {
+					auto.updateWeight(term, auto.weightOf(term) * (0.5 + 1.5 * ourRandom.nextDouble()));
+					updates++;
+				} else {
+					auto.topMatches(term.substring(0, Math.min(2, term.length())), 10);
+				}
+			}
+			double seconds = (System.nanoTime() - startTime) / 1E9;
+			System.out.printf("%.0f%% updates - %.0f ops/s (%.0f updates/s)%n", 100 * fraction, ops / seconds,
+					updates / seconds);
+		}
+	}
+
+	/**
+	 * Times topMatch and topMatches for the empty prefix, randomWord and its
+	 * first one and two characters, and a word that is not in the dictionary,
+	 * and getting the weights of the top 10 matches with weightOf against
+	 * weightedTopMatches.
+	 */
+	public static void benchmarkQueries(Autocompletor auto, String randomWord) {
+		long startTime;
 		String randomPrefix1 = randomWord.substring(0, 1);
 		String randomPrefix2 = randomWord.substring(0, 2);
 		String[] queries = { "", randomWord, randomPrefix1, randomPrefix2, "notarealword" };
 		int trial;
+		// run every query untimed first, so the JIT has compiled them
+		for (trial = 0; trial < 200; trial++) {
+			for (String query : queries) {
+				auto.topMatch(query);
+				auto.topMatches(query, 7);
+			}
+		}
 		for (String query : queries) {
 			startTime = System.nanoTime();
 			for (trial = 0; trial < 1000; trial++) {
@@ -110,7 +303,7 @@ public class AutocompletorBenchmark {
 			for (int k = 1; k <= 7; k += 3) {
 				startTime = System.nanoTime();
 				for (trial = 0; trial < 1000; trial++) {
-					auto.topMatches(query, 3);
+					auto.topMatches(query, k);
 					if (System.nanoTime() - startTime > 5E9)
 						break;
 				}
@@ -118,5 +311,23 @@ public class AutocompletorBenchmark {
 						+ (System.nanoTime() - startTime) / (1E9 * trial));
 			}
 		}
+		for (String query : queries) {
+			startTime = System.nanoTime();
+			for (trial = 0; trial < 1000; trial++) {
+				for (String term : auto.topMatches(query, 10))
+					auto.weightOf(term);
+				if (System.nanoTime() - startTime > 5E9)
+					break;
+			}
+			double lookups = (System.nanoTime() - startTime) / (1E9 * trial);
+			startTime = System.nanoTime();
+			for (trial = 0; trial < 1000; trial++) {
+				auto.weightedTopMatches(query, 10);
+				if (System.nanoTime() - startTime > 5E9)
+					break;
+			}
+			System.out.println("Time for 10 weighted matches of \"" + query + "\" - " + lookups
+					+ " with weightOf, " + (System.nanoTime() - startTime) / (1E9 * trial) + " with weightedTopMatches");
+		}
 	}
 }
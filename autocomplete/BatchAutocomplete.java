@@ -0,0 +1,161 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Answers many topMatches queries at once. The requests are sorted by
+ * prefix, so neighbouring prefixes share most of their characters, and the
+ * sorted run is cut into partitions that are answered in parallel on a
+ * ForkJoinPool, each with its own CompletionSession. Moving a session from
+ * one prefix to the next only backspaces to their common prefix and appends
+ * the rest, so a trie session re-descends only the differing characters and
+ * a binary search session only narrows ranges below the shared part.
+ * Repeated requests for the same prefix and k are answered once.
+ *
+ * The Autocompletor must support concurrent queries (see
+ * SnapshotAutocomplete), since partitions run on several threads.
+ *
+ * Run main with a term file to compare queries per second of one-by-one and
+ * batched queries, for each pool size up to the number of cores.
+ *
+ */
+public class BatchAutocomplete {
+
+	/**
+	 * Partitions never hold fewer requests than this
+	 */
+	private static final int MIN_PARTITION = 1 << 10;
+
+	/**
+	 * Returns weightedTopMatches(prefixes[i], ks[i]) of auto for every i, in
+	 * the order of the requests, computed on pool. Equal requests may share
+	 * the same MatchList.
+	 *
+	 * @throws NullPointerException
+	 *             if an argument or a prefix is null
+	 * @throws IllegalArgumentException
+	 *             if prefixes and ks are different lengths or a k is negative
+	 */
+	public static MatchList[] topMatches(Autocompletor auto, String[] prefixes, int[] ks, ForkJoinPool pool) {
+		if (auto == null || prefixes == null || ks == null || pool == null)
+			throw new NullPointerException("One or more arguments null");
+		if (prefixes.length != ks.length)
+			throw new IllegalArgumentException("prefixes and ks are not the same length");
+		for (int i = 0; i < prefixes.length; i++) {
+			if (prefixes[i] == null)
+				throw new NullPointerException("prefix " + i + " is null");
+			if (ks[i] < 0)
+				throw new IllegalArgumentException("Illegal value of k:" + ks[i]);
+		}
+		Integer[] order = new Integer[prefixes.length];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		MatchList[] results = new MatchList[prefixes.length];
+		pool.submit(() -> Arrays.parallelSort(order, (a, b) -> prefixes[a].compareTo(prefixes[b]))).join();
+		int partitions = Math.max(1, Math.min(4 * pool.getParallelism(), order.length / MIN_PARTITION));
+		pool.invoke(new BatchTask(auto, prefixes, ks, order, results, 0, order.length, order.length / partitions));
+		return results;
+	}
+
+	/**
+	 * Returns topMatches(prefixes[i], k) of auto for every i, as topMatches
+	 * with the same k for every request.
+	 */
+	public static MatchList[] topMatches(Autocompletor auto, String[] prefixes, int k, ForkJoinPool pool) {
+		int[] ks = new int[prefixes.length];
+		Arrays.fill(ks, k);
+		return topMatches(auto, prefixes, ks, pool);
+	}
+
+	/**
+	 * Answers the requests order[lo..hi-1], splitting the run in halves
+	 * until it is at most myGrain long.
+	 */
+	@SuppressWarnings("serial")
+	private static class BatchTask extends RecursiveAction {
+		private final Autocompletor myAuto;
+		private final String[] myPrefixes;
+		private final int[] myKs;
+		private final Integer[] myOrder;
+		private final MatchList[] myResults;
+		private final int myLo, myHi, myGrain;
+
+		BatchTask(Autocompletor auto, String[] prefixes, int[] ks, Integer[] order, MatchList[] results, int lo,
+				int hi, int grain) {
+			myAuto = auto;
+			myPrefixes = prefixes;
+			myKs = ks;
+			myOrder = order;
+			myResults = results;
+			myLo = lo;
+			myHi = hi;
+			myGrain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (myHi - myLo > myGrain) {
+				int mid = (myLo + myHi) >>> 1;
+				invokeAll(new BatchTask(myAuto, myPrefixes, myKs, myOrder, myResults, myLo, mid, myGrain),
+						new BatchTask(myAuto, myPrefixes, myKs, myOrder, myResults, mid, myHi, myGrain));
+				return;
+			}
+			CompletionSession session = myAuto.newSession();
+			int previous = -1;
+			for (int i = myLo; i < myHi; i++) {
+				int request = myOrder[i];
+				if (previous >= 0 && myKs[request] == myKs[previous]
+						&& myPrefixes[request].equals(myPrefixes[previous])) {
+					myResults[request] = myResults[previous];
+					continue;
+				}
+				session.setText(myPrefixes[request]);
+				myResults[request] = session.weightedTopMatches(myKs[request]);
+				previous = request;
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("usage: java BatchAutocomplete <termfile> [queries]");
+			System.exit(1);
+		}
+		int n = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		TermFileLoader data = new TermFileLoader(new File(args[0]), true);
+		System.out.println(data);
+		String[] terms = data.getTerms();
+		Random random = new Random(1234);
+		String[] prefixes = new String[n];
+		for (int i = 0; i < n; i++) {
+			String term = terms[random.nextInt(terms.length)];
+			prefixes[i] = term.substring(0, Math.min(1 + random.nextInt(6), term.length()));
+		}
+		Autocompletor[] autos = { new TrieAutocomplete(terms, data.getWeights()),
+				new BinarySearchAutocomplete(terms, data.getWeights(), true) };
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (Autocompletor auto : autos) {
+			System.out.println(auto.getClass().getName() + ", " + n + " queries, k = 10");
+			long start = System.nanoTime();
+			for (String prefix : prefixes)
+				auto.weightedTopMatches(prefix, 10);
+			double single = n / ((System.nanoTime() - start) / 1E9);
+			System.out.printf("%-10s %12s %12s%n", "threads", "queries/s", "per core");
+			System.out.printf("%-10s %12.0f %12.0f%n", "one by one", single, single);
+			for (int p = 1;; p *= 2) {
+				int threads = Math.min(p, cores);
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				start = System.nanoTime();
+				topMatches(auto, prefixes, 10, pool);
+				double batch = n / ((System.nanoTime() - start) / 1E9);
+				System.out.printf("%-10d %12.0f %12.0f%n", threads, batch, batch / threads);
+				pool.shutdown();
+				if (threads == cores)
+					break;
+			}
+		}
+	}
+}
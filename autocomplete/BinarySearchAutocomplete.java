@@ -1,6 +1,5 @@
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.PriorityQueue;
 
 /**
@@ -15,6 +14,12 @@ public class BinarySearchAutocomplete implements Autocompletor {
 
 	Term[] myTerms;
 
+	/**
+	 * Range-maximum index over the weights of myTerms, or null if topMatch and
+	 * topMatches scan the matching range instead
+	 */
+	RangeMaxIndex myRangeMax;
+
 	/**
 	 * Given arrays of words and weights, initialize myTerms to a corresponding
 	 * array of Terms sorted lexicographically.
@@ -44,6 +49,44 @@ public class BinarySearchAutocomplete implements Autocompletor {
 		Arrays.sort(myTerms);
 	}
 
+	/**
+	 * Constructor for a BinarySearchAutocomplete around Terms that are already
+	 * sorted lexicographically, e.g. by AutocompleteBuilder.buildBinarySearch.
+	 * The array is not copied.
+	 */
+	BinarySearchAutocomplete(Term[] sortedTerms) {
+		myTerms = sortedTerms;
+	}
+
+	/**
+	 * Constructor for a BinarySearchAutocomplete that can also build a
+	 * range-maximum index over the weights of the sorted terms. With the
+	 * index, topMatch is a single range-maximum query and topMatches(prefix,
+	 * k) takes O(k log k) after the binary searches, however many terms start
+	 * with prefix, at the cost of a weight column plus a few more bytes per
+	 * term for the index.
+	 * 
+	 * @param terms
+	 *            - A list of words to form terms from
+	 * @param weights
+	 *            - A corresponding list of weights, such that terms[i] has
+	 *            weight[i].
+	 * @param rangeMax
+	 *            - Whether to build the range-maximum index
+	 * @throws a
+	 *             NullPointerException if either array passed in is null
+	 */
+	public BinarySearchAutocomplete(String[] terms, double[] weights, boolean rangeMax) {
+		this(terms, weights);
+		if (rangeMax) {
+			double[] sortedWeights = new double[myTerms.length];
+			for (int i = 0; i < myTerms.length; i++) {
+				sortedWeights[i] = myTerms[i].getWeight();
+			}
+			myRangeMax = new RangeMaxIndex(sortedWeights);
+		}
+	}
+
 	/**
 	 * Uses binary search to find the index of the first Term in the passed in
 	 * array which is considered equivalent by a comparator to the given key.
@@ -141,37 +184,102 @@ public class BinarySearchAutocomplete implements Autocompletor {
 	 */
 	public Iterable<String> topMatches(String prefix, int k) {
 		// TODO: Implement topMatches
+		return weightedTopMatches(prefix, k);
+	}
+
+	/**
+	 * Returns the same matches as topMatches, with the weights of their
+	 * Terms.
+	 */
+	@Override
+	public MatchList weightedTopMatches(String prefix, int k) {
 		if(prefix == null){
 			throw new NullPointerException("prefix is null!");
 		}
 		if (k < 0)
 			throw new IllegalArgumentException("Illegal value of k:"+k);
-		LinkedList<String> ret = new LinkedList<String>();
+		MatchList ret = new MatchList(Math.min(k, 16));
 		if(k == 0){
 			return ret;
 		}
 		Term key = new Term(prefix, 0);
 		int first = firstIndexOf(myTerms, key, new Term.PrefixOrder(prefix.length()));
 		int last = lastIndexOf(myTerms, key, new Term.PrefixOrder(prefix.length()));
+		if(first != -1 && last != -1){
+			topMatches(first, last, k, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Adds to ret the k heaviest terms in myTerms[first..last], in descending
+	 * weight order.
+	 */
+	private void topMatches(int first, int last, int k, MatchList ret) {
+		if(k == 0){
+			return;
+		}
+		if(myRangeMax != null){
+			rangeMaxMatches(first, last, k, ret);
+			return;
+		}
 		PriorityQueue<Term> pq = new PriorityQueue<Term>(k, new Term.WeightOrder());
-		if(first != -1 && last != -1){		
-			for(int i = first; i <= last; i++){
-				if(pq.size() < k){
+		for(int i = first; i <= last; i++){
+			if(pq.size() < k){
+				pq.add(myTerms[i]);
+			}else{
+				if(pq.peek().getWeight() < myTerms[i].getWeight()){
+					pq.remove();
 					pq.add(myTerms[i]);
-				}else{
-					if(pq.peek().getWeight() < myTerms[i].getWeight()){
-						pq.remove();
-						pq.add(myTerms[i]);
-					}
 				}
 			}
 		}
 		
 		int numResults = Math.min(pq.size(), k);
 		for(int j = 0; j < numResults; j++){
-			ret.addFirst(pq.remove().getWord());
+			Term t = pq.remove();
+			ret.add(t.getWord(), t.getWeight());
+		}
+		ret.reverse();
+	}
+
+	/**
+	 * Adds to ret the k heaviest terms in myTerms[first..last], in descending
+	 * weight order, using myRangeMax. A max-heap holds disjoint subranges
+	 * keyed by their largest weight; removing the top range yields its
+	 * heaviest term and splits the range around it, so each result costs one
+	 * range-maximum query and O(log k) heap work.
+	 */
+	private void rangeMaxMatches(int first, int last, int k, MatchList ret) {
+		int[] lo = new int[2 * k + 1];
+		int[] hi = new int[2 * k + 1];
+		int[] max = new int[2 * k + 1];
+		IndexHeap ranges = new IndexHeap(2 * k + 1, true);
+		int slots = 0;
+		lo[slots] = first;
+		hi[slots] = last;
+		max[slots] = myRangeMax.argMax(first, last);
+		ranges.add(slots, myTerms[max[slots]].getWeight());
+		slots++;
+		while(ret.size() < k && !ranges.isEmpty()){
+			int slot = ranges.remove();
+			int m = max[slot];
+			ret.add(myTerms[m].getWord(), myTerms[m].getWeight());
+			if(lo[slot] < m){
+				lo[slots] = lo[slot];
+				hi[slots] = m - 1;
+				max[slots] = myRangeMax.argMax(lo[slots], hi[slots]);
+				ranges.add(slots, myTerms[max[slots]].getWeight());
+				slots++;
+			}
+			if(m < hi[slot]){
+				lo[slots] = m + 1;
+				hi[slots] = hi[slot];
+				max[slots] = myRangeMax.argMax(lo[slots], hi[slots]);
+				ranges.add(slots, myTerms[max[slots]].getWeight());
+				slots++;
+			}
 		}
-		return ret;
 	}
 
 	/**
@@ -198,6 +306,16 @@ public class BinarySearchAutocomplete implements Autocompletor {
 		if(first == -1 || last == -1){
 			return "";
 		}
+		return topMatch(first, last);
+	}
+
+	/**
+	 * Returns the heaviest term in myTerms[first..last].
+	 */
+	private String topMatch(int first, int last) {
+		if(myRangeMax != null){
+			return myTerms[myRangeMax.argMax(first, last)].getWord();
+		}
 		double maxWeight = 0;
 		Term max = null;
 		for(int i = first; i <= last; i++){
@@ -209,6 +327,103 @@ public class BinarySearchAutocomplete implements Autocompletor {
 		return max.getWord();
 	}
 
+	/**
+	 * Returns a CompletionSession that keeps the range of matching terms for
+	 * every prefix of its text. Appending the character for position d only
+	 * binary searches the current range on the d-th character of each term,
+	 * since all its terms already agree on the first d, and backspace pops
+	 * back to the shorter prefix's range.
+	 */
+	@Override
+	public CompletionSession newSession() {
+		return new RangeSession();
+	}
+
+	private class RangeSession implements CompletionSession {
+		private final StringBuilder myText = new StringBuilder();
+
+		/**
+		 * myFirst[i]..myLast[i] is the range of terms starting with the first i
+		 * characters of myText; empty when myFirst[i] > myLast[i]
+		 */
+		private int[] myFirst = new int[16];
+		private int[] myLast = new int[16];
+
+		RangeSession() {
+			myLast[0] = myTerms.length - 1;
+		}
+
+		public void append(char ch) {
+			int d = myText.length();
+			if(d + 1 == myFirst.length){
+				myFirst = Arrays.copyOf(myFirst, 2 * myFirst.length);
+				myLast = Arrays.copyOf(myLast, 2 * myLast.length);
+			}
+			int first = myFirst[d];
+			int last = myLast[d];
+			if(first <= last){
+				first = charIndexOf(first, last + 1, d, ch, false);
+				last = charIndexOf(first, last + 1, d, ch, true) - 1;
+			}
+			myFirst[d + 1] = first;
+			myLast[d + 1] = last;
+			myText.append(ch);
+		}
+
+		public void backspace() {
+			if(myText.length() > 0){
+				myText.setLength(myText.length() - 1);
+			}
+		}
+
+		public String getText() {
+			return myText.toString();
+		}
+
+		public Iterable<String> topMatches(int k) {
+			return weightedTopMatches(k);
+		}
+
+		public MatchList weightedTopMatches(int k) {
+			if (k < 0)
+				throw new IllegalArgumentException("Illegal value of k:"+k);
+			MatchList ret = new MatchList(Math.min(k, 16));
+			int d = myText.length();
+			if(myFirst[d] <= myLast[d]){
+				BinarySearchAutocomplete.this.topMatches(myFirst[d], myLast[d], k, ret);
+			}
+			return ret;
+		}
+
+		public String topMatch() {
+			int d = myText.length();
+			if(myFirst[d] > myLast[d]){
+				return "";
+			}
+			return BinarySearchAutocomplete.this.topMatch(myFirst[d], myLast[d]);
+		}
+	}
+
+	/**
+	 * Returns the first index in [low, high) whose term's character at d is
+	 * at least ch (or, if after is true, greater than ch), where the terms
+	 * in the range all share their first d characters. A term with only d
+	 * characters sorts before every character.
+	 */
+	private int charIndexOf(int low, int high, int d, char ch, boolean after) {
+		while(low < high){
+			int middle = (low + high) >>> 1;
+			String word = myTerms[middle].getWord();
+			int cmp = word.length() <= d ? -1 : word.charAt(d) - ch;
+			if(cmp < 0 || (after && cmp == 0)){
+				low = middle + 1;
+			}else{
+				high = middle;
+			}
+		}
+		return low;
+	}
+
 	/**
 	 * Return the weight of a given term. If term is not in the dictionary,
 	 * return 0.0
@@ -1,70 +1,171 @@
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.PriorityQueue;
 
 /**
  * Implements Autocompletor by scanning through the entire array of terms for
  * every topKMatches or topMatch query.
+ *
+ * The characters of all the terms are packed end to end in one char array,
+ * so a scan reads memory in order instead of following a pointer to each
+ * String. Optionally, the terms are kept in descending weight order, so a
+ * scan can stop as soon as it has k matches: then a query for a common
+ * prefix ends after a handful of terms, and only a prefix with fewer than k
+ * matches still reads every term.
  */
 public class BruteAutocomplete implements Autocompletor {
 
-	Term[] myTerms;
+	/**
+	 * The terms in scan order, with their weights. The characters of
+	 * myWords[i] are also myChars[myStarts[i]] up to, but not including,
+	 * myChars[myStarts[i + 1]].
+	 */
+	private final String[] myWords;
+	private final double[] myWeights;
+	private final char[] myChars;
+	private final int[] myStarts;
+
+	/**
+	 * True if the terms are in descending weight order
+	 */
+	private final boolean isWeightOrder;
 
 	public BruteAutocomplete(String[] terms, double[] weights) {
+		this(terms, weights, false);
+	}
+
+	/**
+	 * Constructor for a BruteAutocomplete that can keep its terms in
+	 * descending weight order, so that a scan stops after k matches. Terms of
+	 * equal weight keep their input order.
+	 *
+	 * @param terms
+	 *            - A list of words to form terms from
+	 * @param weights
+	 *            - A corresponding list of weights, such that terms[i] has
+	 *            weight[i].
+	 * @param weightOrder
+	 *            - Whether to sort the terms by descending weight
+	 * @throws NullPointerException
+	 *             if either array passed in is null
+	 * @throws IllegalArgumentException
+	 *             if the arrays are different lengths, a weight is negative or
+	 *             a term is repeated
+	 */
+	public BruteAutocomplete(String[] terms, double[] weights, boolean weightOrder) {
 		if (terms == null || weights == null)
 			throw new NullPointerException("One or more arguments null");
 		if (terms.length != weights.length)
 			throw new IllegalArgumentException("terms and weights are not the same length");
-		myTerms = new Term[terms.length];
+		Term[] order = new Term[terms.length];
 		HashSet<String> words = new HashSet<String>();
+		long length = 0;
 		for (int i = 0; i < terms.length; i++) {
 			words.add(terms[i]);
-			myTerms[i] = new Term(terms[i], weights[i]);
+			order[i] = new Term(terms[i], weights[i]);
 			if (weights[i] < 0)
 				throw new IllegalArgumentException("Negative weight "+ weights[i]);
+			length += terms[i].length();
 		}
 		if (words.size() != terms.length)
 			throw new IllegalArgumentException("Duplicate input terms");
+		if (length > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Terms too long for one char array");
+		if (weightOrder) {
+			// stable, so equal weights keep their input order; compare the
+			// doubles, since Term.ReverseWeightOrder truncates differences
+			Arrays.sort(order, (a, b) -> Double.compare(b.getWeight(), a.getWeight()));
+		}
+		isWeightOrder = weightOrder;
+		myWords = new String[order.length];
+		myWeights = new double[order.length];
+		myChars = new char[(int) length];
+		myStarts = new int[order.length + 1];
+		for (int i = 0; i < order.length; i++) {
+			myWords[i] = order[i].getWord();
+			myWeights[i] = order[i].getWeight();
+			myWords[i].getChars(0, myWords[i].length(), myChars, myStarts[i]);
+			myStarts[i + 1] = myStarts[i] + myWords[i].length();
+		}
+	}
+
+	/**
+	 * Returns whether term i starts with prefix, reading the packed
+	 * characters
+	 */
+	private boolean startsWith(int i, String prefix) {
+		int start = myStarts[i];
+		if (myStarts[i + 1] - start < prefix.length())
+			return false;
+		for (int j = 0; j < prefix.length(); j++) {
+			if (myChars[start + j] != prefix.charAt(j))
+				return false;
+		}
+		return true;
 	}
 
 	public Iterable<String> topMatches(String prefix, int k) {
+		return weightedTopMatches(prefix, k);
+	}
+
+	/**
+	 * Returns the same matches as topMatches, with the weights of their
+	 * Terms.
+	 */
+	@Override
+	public MatchList weightedTopMatches(String prefix, int k) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
 		if (k < 0)
 			throw new IllegalArgumentException("Illegal value of k:"+k);
-		// maintain pq of size k
-		PriorityQueue<Term> pq = new PriorityQueue<Term>(k, new Term.WeightOrder());
-		for (Term t : myTerms) {
-			if (!t.getWord().startsWith(prefix))
+		if (isWeightOrder) {
+			MatchList ret = new MatchList(Math.min(k, 16));
+			for (int i = 0; i < myWords.length && ret.size() < k; i++) {
+				if (startsWith(i, prefix))
+					ret.add(myWords[i], myWeights[i]);
+			}
+			return ret;
+		}
+		// maintain a min-heap of the best k matches so far
+		IndexHeap heap = new IndexHeap(k, false);
+		for (int i = 0; i < myWords.length && k > 0; i++) {
+			if (!startsWith(i, prefix))
 				continue;
-			if (pq.size() < k) {
-				pq.add(t);
-			} else if (pq.peek().getWeight() < t.getWeight()) {
-				pq.remove();
-				pq.add(t);
+			if (heap.size() < k) {
+				heap.add(i, myWeights[i]);
+			} else if (heap.peekKey() < myWeights[i]) {
+				heap.remove();
+				heap.add(i, myWeights[i]);
 			}
 		}
-		int numResults = Math.min(k, pq.size());
-		LinkedList<String> ret = new LinkedList<String>();
-		for (int i = 0; i < numResults; i++) {
-			ret.addFirst(pq.remove().getWord());
+		MatchList ret = new MatchList(heap.size());
+		while (!heap.isEmpty()) {
+			int i = heap.remove();
+			ret.add(myWords[i], myWeights[i]);
 		}
+		ret.reverse();
 		return ret;
 	}
 
 	public String topMatch(String prefix) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
 		String maxTerm = "";
 		double maxWeight = -1;
-		for (Term t : myTerms) {
-			if (t.getWeight() > maxWeight && t.getWord().startsWith(prefix)) {
-				maxTerm = t.getWord();
+		for (int i = 0; i < myWords.length; i++) {
+			if (myWeights[i] > maxWeight && startsWith(i, prefix)) {
+				maxTerm = myWords[i];
+				maxWeight = myWeights[i];
+				if (isWeightOrder)
+					break;
 			}
 		}
 		return maxTerm;
 	}
 
 	public double weightOf(String term) {
-		for (Term t : myTerms) {
-			if (t.getWord().equalsIgnoreCase(term))
-				return t.getWeight();
+		for (int i = 0; i < myWords.length; i++) {
+			if (myWords[i].equalsIgnoreCase(term))
+				return myWeights[i];
 		}
 		// term is not in dictionary return 0
 		return 0;
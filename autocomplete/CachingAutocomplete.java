@@ -0,0 +1,336 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Autocompletor that remembers the results of topMatches (and topMatch) for
+ * the most recently used prefixes of another Autocompletor, for traffic
+ * where a small set of prefixes makes up most queries.
+ *
+ * Entries are keyed by prefix alone: an entry for (prefix, k) also answers
+ * (prefix, j) for every j <= k, and any k at all if it holds fewer than k
+ * matches, since then it is every match there is. A request for a larger k
+ * replaces the entry.
+ *
+ * The cache holds at most a fixed number of prefixes, in least recently used
+ * order. Optionally, as in W-TinyLFU, a new prefix is only let in when the
+ * cache is full if it has been asked for more often than the prefix it would
+ * evict. Request counts are kept approximately in a count-min sketch, halved
+ * periodically so that old popularity fades. This keeps a burst of one-off
+ * prefixes from flushing the popular ones.
+ *
+ * invalidateAll must be called whenever the underlying dictionary changes,
+ * e.g. by registering it with SnapshotAutocomplete.addSwapListener. Methods
+ * may be called from several threads; the wrapped Autocompletor is queried
+ * outside the cache's lock.
+ *
+ * Run main with a term file to compare a skewed query stream with and
+ * without the cache.
+ *
+ */
+public class CachingAutocomplete implements Autocompletor {
+
+	/**
+	 * Cached matches for one prefix, in descending weight order
+	 */
+	private static class Entry {
+		final String[] myMatches;
+		final int myK;
+
+		Entry(String[] matches, int k) {
+			myMatches = matches;
+			myK = k;
+		}
+
+		/**
+		 * Returns whether this entry has the top k matches.
+		 */
+		boolean answers(int k) {
+			return k <= myK || myMatches.length < myK;
+		}
+	}
+
+	private final Autocompletor myAuto;
+	private final int myCapacity;
+	private final LinkedHashMap<String, Entry> myEntries;
+	private final FrequencySketch mySketch;
+
+	/**
+	 * Incremented by invalidateAll, so results computed before it are not
+	 * cached after it
+	 */
+	private long myEpoch;
+
+	private final AtomicLong myHits = new AtomicLong();
+	private final AtomicLong myMisses = new AtomicLong();
+	private final AtomicLong myEvictions = new AtomicLong();
+	private final AtomicLong myRejections = new AtomicLong();
+
+	/**
+	 * Creates an LRU cache of up to capacity prefixes in front of auto.
+	 *
+	 * @throws NullPointerException
+	 *             if auto is null
+	 * @throws IllegalArgumentException
+	 *             if capacity is not positive
+	 */
+	public CachingAutocomplete(Autocompletor auto, int capacity) {
+		this(auto, capacity, false);
+	}
+
+	/**
+	 * Creates a cache of up to capacity prefixes in front of auto, which
+	 * evicts the least recently used prefix and, if admission is true, only
+	 * admits a new prefix in its place if the new one is more frequent.
+	 *
+	 * @throws NullPointerException
+	 *             if auto is null
+	 * @throws IllegalArgumentException
+	 *             if capacity is not positive
+	 */
+	public CachingAutocomplete(Autocompletor auto, int capacity, boolean admission) {
+		if (auto == null)
+			throw new NullPointerException("auto is null");
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Illegal capacity:" + capacity);
+		myAuto = auto;
+		myCapacity = capacity;
+		myEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		mySketch = admission ? new FrequencySketch(capacity) : null;
+	}
+
+	public Iterable<String> topMatches(String prefix, int k) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal value of k:" + k);
+		String[] matches = lookup(prefix, k);
+		if (matches.length > k)
+			matches = Arrays.copyOf(matches, k);
+		return Collections.unmodifiableList(Arrays.asList(matches));
+	}
+
+	public String topMatch(String prefix) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		String[] matches = lookup(prefix, 1);
+		return matches.length == 0 ? "" : matches[0];
+	}
+
+	public double weightOf(String term) {
+		return myAuto.weightOf(term);
+	}
+
+	/**
+	 * Returns at least the top k matches for prefix (possibly more), from the
+	 * cache or from the underlying Autocompletor.
+	 */
+	private String[] lookup(String prefix, int k) {
+		long epoch;
+		synchronized (this) {
+			if (mySketch != null)
+				mySketch.increment(prefix);
+			Entry entry = myEntries.get(prefix);
+			if (entry != null && entry.answers(k)) {
+				myHits.incrementAndGet();
+				return entry.myMatches;
+			}
+			epoch = myEpoch;
+		}
+		myMisses.incrementAndGet();
+		String[] matches = toArray(myAuto.topMatches(prefix, k));
+		synchronized (this) {
+			if (epoch == myEpoch)
+				store(prefix, new Entry(matches, k));
+		}
+		return matches;
+	}
+
+	private static String[] toArray(Iterable<String> matches) {
+		String[] ret = new String[8];
+		int size = 0;
+		for (String match : matches) {
+			if (size == ret.length)
+				ret = Arrays.copyOf(ret, 2 * size);
+			ret[size++] = match;
+		}
+		return Arrays.copyOf(ret, size);
+	}
+
+	/**
+	 * Caches entry for prefix, evicting the least recently used prefix if
+	 * the cache is full and the admission policy lets the new one in.
+	 */
+	private void store(String prefix, Entry entry) {
+		Entry old = myEntries.get(prefix);
+		if (old != null) {
+			if (!old.answers(entry.myK))
+				myEntries.put(prefix, entry);
+			return;
+		}
+		if (myEntries.size() >= myCapacity) {
+			Iterator<String> eldest = myEntries.keySet().iterator();
+			String victim = eldest.next();
+			if (mySketch != null && mySketch.frequency(prefix) <= mySketch.frequency(victim)) {
+				myRejections.incrementAndGet();
+				return;
+			}
+			eldest.remove();
+			myEvictions.incrementAndGet();
+		}
+		myEntries.put(prefix, entry);
+	}
+
+	/**
+	 * Drops every cached result. Must be called whenever the underlying
+	 * dictionary changes. Results being computed concurrently are not cached.
+	 * Request counts are kept, since popular prefixes usually stay popular.
+	 */
+	public synchronized void invalidateAll() {
+		myEntries.clear();
+		myEpoch++;
+	}
+
+	/**
+	 * Drops the cached results for prefix.
+	 */
+	public synchronized void invalidate(String prefix) {
+		myEntries.remove(prefix);
+	}
+
+	public synchronized int size() {
+		return myEntries.size();
+	}
+
+	public long getHits() {
+		return myHits.get();
+	}
+
+	public long getMisses() {
+		return myMisses.get();
+	}
+
+	/**
+	 * Returns the number of prefixes evicted to make room for another
+	 */
+	public long getEvictions() {
+		return myEvictions.get();
+	}
+
+	/**
+	 * Returns the number of results not cached because the admission policy
+	 * preferred the prefix they would have evicted
+	 */
+	public long getRejections() {
+		return myRejections.get();
+	}
+
+	public double getHitRate() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d hits, %d misses (%.1f%% hit rate), %d evictions, %d rejections", getHits(),
+				getMisses(), 100 * getHitRate(), getEvictions(), getRejections());
+	}
+
+	/**
+	 * Count-min sketch of request counts: four rows of counters capped at 15,
+	 * each prefix counted in one counter per row, and its frequency estimated
+	 * as the smallest of those. After about ten requests per cached prefix,
+	 * every counter is halved.
+	 */
+	private static class FrequencySketch {
+		private static final int ROWS = 4;
+		private static final int MAX_COUNT = 15;
+		private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+		private final byte[][] myCounts;
+		private final int myMask;
+		private final int myResetAt;
+		private int myIncrements;
+
+		FrequencySketch(int capacity) {
+			int width = Integer.highestOneBit(Math.max(16, 4 * capacity - 1)) << 1;
+			myCounts = new byte[ROWS][width];
+			myMask = width - 1;
+			myResetAt = 10 * capacity;
+		}
+
+		private int index(int hash, int row) {
+			int h = hash * SEEDS[row];
+			return (h ^ (h >>> 16)) & myMask;
+		}
+
+		void increment(String key) {
+			int hash = key.hashCode();
+			for (int row = 0; row < ROWS; row++) {
+				int i = index(hash, row);
+				if (myCounts[row][i] < MAX_COUNT)
+					myCounts[row][i]++;
+			}
+			if (++myIncrements >= myResetAt) {
+				for (byte[] counts : myCounts) {
+					for (int i = 0; i < counts.length; i++)
+						counts[i] >>= 1;
+				}
+				myIncrements /= 2;
+			}
+		}
+
+		int frequency(String key) {
+			int hash = key.hashCode();
+			int min = MAX_COUNT;
+			for (int row = 0; row < ROWS; row++)
+				min = Math.min(min, myCounts[row][index(hash, row)]);
+			return min;
+		}
+	}
+
+	/**
+	 * Times a skewed stream of topMatches queries, each for one to four of
+	 * the first characters of a term whose position in the file is drawn with
+	 * a power law, against the underlying BinarySearchAutocomplete
+	 * and against LRU and admission caches of a few sizes.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("usage: java CachingAutocomplete <termfile>");
+			System.exit(1);
+		}
+		TermFileLoader data = new TermFileLoader(new File(args[0]), true);
+		System.out.println(data);
+		String[] terms = data.getTerms();
+		Autocompletor auto = new BinarySearchAutocomplete(terms, data.getWeights());
+		Random random = new Random(1234);
+		String[] queries = new String[1000000];
+		for (int i = 0; i < queries.length; i++) {
+			String term = terms[(int) (terms.length * Math.pow(random.nextDouble(), 4))];
+			queries[i] = term.substring(0, Math.min(1 + random.nextInt(4), term.length()));
+		}
+		System.out.printf("%-22s %10s%n", "", "queries/s");
+		System.out.printf("%-22s %10.0f%n", "uncached", run(auto, queries));
+		for (int capacity = 1000; capacity <= 100000; capacity *= 10) {
+			for (boolean admission : new boolean[] { false, true }) {
+				CachingAutocomplete cache = new CachingAutocomplete(auto, capacity, admission);
+				double rate = run(cache, queries);
+				System.out.printf("%-22s %10.0f   %s%n", (admission ? "tinylfu " : "lru ") + capacity, rate, cache);
+			}
+		}
+	}
+
+	private static double run(Autocompletor auto, String[] queries) {
+		long start = System.nanoTime();
+		for (int i = 0; i < queries.length; i++)
+			auto.topMatches(queries[i], 1 + (i & 7));
+		return queries.length / ((System.nanoTime() - start) / 1E9);
+	}
+}
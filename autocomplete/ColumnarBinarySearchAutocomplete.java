@@ -0,0 +1,211 @@
+import java.util.Arrays;
+
+/**
+ * Binary search implementation of Autocompletor that stores the sorted words
+ * and their weights as two parallel columns instead of an array of Terms.
+ * Prefixes are compared against words in place, character by character,
+ * rather than through Term.PrefixOrder's substrings.
+ *
+ * topMatches and weightedTopMatches return a new MatchList on every call, so
+ * an instance can be queried from several threads. A caller that queries
+ * from one thread and wants to allocate nothing can instead pass its own
+ * list to weightedTopMatches(prefix, k, into), which refills that list and
+ * reuses a top-k heap kept in the instance once it has grown to the largest
+ * k asked for.
+ *
+ */
+public class ColumnarBinarySearchAutocomplete implements Autocompletor {
+
+	/**
+	 * The distinct words in lexicographic order, and their weights
+	 */
+	protected String[] myWords;
+	protected double[] myWeights;
+
+	/**
+	 * The top-k heap reused by weightedTopMatches(prefix, k, into)
+	 */
+	private final IndexHeap myBest = new IndexHeap(16, false);
+
+	/**
+	 * Constructor method for ColumnarBinarySearchAutocomplete. If a word
+	 * appears more than once, its last weight is used.
+	 *
+	 * @param terms
+	 *            - The words we will autocomplete from
+	 * @param weights
+	 *            - Their weights, such that terms[i] has weight weights[i].
+	 * @throws NullPointerException
+	 *             if either argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different lengths, or a weight is
+	 *             negative
+	 */
+	public ColumnarBinarySearchAutocomplete(String[] terms, double[] weights) {
+		Term[] sorted = Term.sortedDistinct(terms, weights);
+		myWords = new String[sorted.length];
+		myWeights = new double[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			myWords[i] = sorted[i].getWord();
+			myWeights[i] = sorted[i].getWeight();
+		}
+	}
+
+	/**
+	 * Compares word to prefix using only the first prefix.length() characters
+	 * of word, like Term.PrefixOrder but without creating substrings.
+	 *
+	 * @return a negative number if word sorts before every word starting with
+	 *         prefix, 0 if word starts with prefix, and a positive number if
+	 *         it sorts after them
+	 */
+	public static int comparePrefix(String word, String prefix) {
+		int len = Math.min(word.length(), prefix.length());
+		for (int i = 0; i < len; i++) {
+			char a = word.charAt(i);
+			char b = prefix.charAt(i);
+			if (a != b)
+				return a - b;
+		}
+		return word.length() < prefix.length() ? -1 : 0;
+	}
+
+	/**
+	 * Returns the index of the first word starting with prefix, or the index
+	 * where such a word would be inserted if there is none.
+	 */
+	protected int firstIndexOf(String prefix) {
+		int low = 0;
+		int high = myWords.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (comparePrefix(myWords[middle], prefix) < 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns one more than the index of the last word starting with prefix.
+	 */
+	protected int lastIndexOf(String prefix) {
+		int low = 0;
+		int high = myWords.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (comparePrefix(myWords[middle], prefix) <= 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Required by the Autocompletor interface. Returns the k words with the
+	 * largest weight which start with prefix, in descending weight order,
+	 * together with their weights, in a new list.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public MatchList topMatches(String prefix, int k) {
+		return weightedTopMatches(prefix, k);
+	}
+
+	/**
+	 * Returns the same matches as topMatches, which already hold the weights.
+	 */
+	@Override
+	public MatchList weightedTopMatches(String prefix, int k) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal value of k:" + k);
+		int first = firstIndexOf(prefix);
+		int last = lastIndexOf(prefix);
+		int size = Math.min(k, last - first);
+		MatchList ret = new MatchList(size);
+		topMatches(first, last, k, new IndexHeap(size, false), ret);
+		return ret;
+	}
+
+	/**
+	 * Clears into and fills it with the same matches as weightedTopMatches,
+	 * without allocating once into and the heap kept in this instance have
+	 * grown to the largest k asked for. Because that heap is shared, this
+	 * method must not be called from more than one thread at a time, and the
+	 * caller owns into, which the next call with the same list overwrites.
+	 *
+	 * @return into
+	 * @throws NullPointerException
+	 *             if prefix or into is null
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public MatchList weightedTopMatches(String prefix, int k, MatchList into) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal value of k:" + k);
+		into.clear();
+		topMatches(firstIndexOf(prefix), lastIndexOf(prefix), k, myBest, into);
+		return into;
+	}
+
+	/**
+	 * Adds to ret the k heaviest words with indices from first up to, but not
+	 * including, last, in descending weight order, using best as the top-k
+	 * heap after clearing it.
+	 */
+	private void topMatches(int first, int last, int k, IndexHeap best, MatchList ret) {
+		if (k == 0)
+			return;
+		best.clear();
+		for (int i = first; i < last; i++) {
+			if (best.size() < k) {
+				best.add(i, myWeights[i]);
+			} else if (myWeights[i] > best.peekKey()) {
+				best.remove();
+				best.add(i, myWeights[i]);
+			}
+		}
+		while (!best.isEmpty()) {
+			int i = best.remove();
+			ret.add(myWords[i], myWeights[i]);
+		}
+		ret.reverse();
+	}
+
+	/**
+	 * Given a prefix, returns the largest-weight word starting with that
+	 * prefix, or an empty string if none exists.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	public String topMatch(String prefix) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		int last = lastIndexOf(prefix);
+		int max = -1;
+		for (int i = firstIndexOf(prefix); i < last; i++) {
+			if (max < 0 || myWeights[i] > myWeights[max])
+				max = i;
+		}
+		return max < 0 ? "" : myWords[max];
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary,
+	 * return 0.0
+	 */
+	public double weightOf(String term) {
+		int i = Arrays.binarySearch(myWords, term);
+		return i >= 0 ? myWeights[i] : 0.0;
+	}
+}
@@ -0,0 +1,279 @@
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Trie implementation of Autocompletor whose nodes live in flat primitive
+ * arrays instead of Node objects. Nodes are numbered in breadth-first order,
+ * so the children of node n are the contiguous ids myFirstChild[n] up to (but
+ * not including) myFirstChild[n + 1], stored in increasing order of their
+ * character label. A child is found by binary search over those labels
+ * instead of hashing a boxed Character, and topMatches uses the same
+ * subtree-max-weight pruned best-first search as TrieAutocomplete, with
+ * IndexHeaps in place of PriorityQueues of Nodes.
+ *
+ * Results are the same as TrieAutocomplete for the same terms and weights.
+ *
+ */
+public class CompactTrieAutocomplete implements Autocompletor {
+
+	/**
+	 * The distinct words in lexicographic order, and their weights
+	 */
+	protected String[] myWords;
+	protected double[] myWordWeights;
+
+	/**
+	 * Number of nodes in the trie, including the root (node 0)
+	 */
+	protected int myNodeCount;
+
+	/**
+	 * The character each node represents (the root's is a placeholder)
+	 */
+	protected char[] myLabels;
+
+	/**
+	 * Children of node n are the nodes myFirstChild[n] .. myFirstChild[n+1]-1.
+	 * Has myNodeCount + 1 entries.
+	 */
+	protected int[] myFirstChild;
+
+	/**
+	 * Index into myWords of the word ending at each node, or -1 if no word
+	 * ends there
+	 */
+	protected int[] myWordIndex;
+
+	/**
+	 * The maximum weight of any word in the subtrie rooted at each node
+	 */
+	protected double[] mySubtreeMaxWeight;
+
+	/**
+	 * Constructor method for CompactTrieAutocomplete. If a word appears more
+	 * than once, its last weight is used, as in TrieAutocomplete.
+	 *
+	 * @param terms
+	 *            - The words we will autocomplete from
+	 * @param weights
+	 *            - Their weights, such that terms[i] has weight weights[i].
+	 * @throws NullPointerException
+	 *             if either argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different lengths, or a weight is
+	 *             negative
+	 */
+	public CompactTrieAutocomplete(String[] terms, double[] weights) {
+		Term[] sorted = Term.sortedDistinct(terms, weights);
+		myWords = new String[sorted.length];
+		myWordWeights = new double[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			myWords[i] = sorted[i].getWord();
+			myWordWeights[i] = sorted[i].getWeight();
+		}
+		build();
+	}
+
+	/**
+	 * Builds the node arrays from the sorted, distinct myWords. Each node
+	 * covers the range of words that start with the node's prefix; since the
+	 * words are sorted, a node's children are the runs of equal characters at
+	 * the node's depth within its range, and a word equal to the prefix comes
+	 * first. Processing nodes in breadth-first order hands out child ids
+	 * contiguously, and because every child has a larger id than its parent,
+	 * one pass over the ids in reverse computes all subtree maxima.
+	 */
+	private void build() {
+		int capacity = Math.max(16, myWords.length);
+		myLabels = new char[capacity];
+		myFirstChild = new int[capacity + 1];
+		myWordIndex = new int[capacity];
+		int[] lo = new int[capacity];
+		int[] hi = new int[capacity];
+		int[] depth = new int[capacity];
+
+		myLabels[0] = '-';
+		hi[0] = myWords.length;
+		myNodeCount = 1;
+		for (int node = 0; node < myNodeCount; node++) {
+			int start = lo[node];
+			int end = hi[node];
+			int d = depth[node];
+			myWordIndex[node] = -1;
+			if (start < end && myWords[start].length() == d) {
+				myWordIndex[node] = start;
+				start++;
+			}
+			myFirstChild[node] = myNodeCount;
+			while (start < end) {
+				char ch = myWords[start].charAt(d);
+				int stop = start + 1;
+				while (stop < end && myWords[stop].charAt(d) == ch)
+					stop++;
+				if (myNodeCount == myLabels.length) {
+					capacity = 2 * capacity;
+					myLabels = Arrays.copyOf(myLabels, capacity);
+					myFirstChild = Arrays.copyOf(myFirstChild, capacity + 1);
+					myWordIndex = Arrays.copyOf(myWordIndex, capacity);
+					lo = Arrays.copyOf(lo, capacity);
+					hi = Arrays.copyOf(hi, capacity);
+					depth = Arrays.copyOf(depth, capacity);
+				}
+				myLabels[myNodeCount] = ch;
+				lo[myNodeCount] = start;
+				hi[myNodeCount] = stop;
+				depth[myNodeCount] = d + 1;
+				myNodeCount++;
+				start = stop;
+			}
+		}
+		myFirstChild[myNodeCount] = myNodeCount;
+		myLabels = Arrays.copyOf(myLabels, myNodeCount);
+		myFirstChild = Arrays.copyOf(myFirstChild, myNodeCount + 1);
+		myWordIndex = Arrays.copyOf(myWordIndex, myNodeCount);
+
+		mySubtreeMaxWeight = new double[myNodeCount];
+		for (int node = myNodeCount - 1; node >= 0; node--) {
+			double max = myWordIndex[node] >= 0 ? myWordWeights[myWordIndex[node]] : 0;
+			for (int c = myFirstChild[node]; c < myFirstChild[node + 1]; c++) {
+				if (mySubtreeMaxWeight[c] > max)
+					max = mySubtreeMaxWeight[c];
+			}
+			mySubtreeMaxWeight[node] = max;
+		}
+	}
+
+	/**
+	 * Returns the child of node labelled ch, or -1 if there is none.
+	 */
+	protected int getChild(int node, char ch) {
+		int low = myFirstChild[node];
+		int high = myFirstChild[node + 1] - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (myLabels[middle] < ch) {
+				low = middle + 1;
+			} else if (myLabels[middle] > ch) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the node reached by following prefix from the root, or -1 if
+	 * no word starts with prefix.
+	 */
+	protected int findNode(String prefix) {
+		int node = 0;
+		for (int i = 0; i < prefix.length() && node >= 0; i++) {
+			node = getChild(node, prefix.charAt(i));
+		}
+		return node;
+	}
+
+	/**
+	 * Required by the Autocompletor interface. Returns the k words with the
+	 * largest weight which start with prefix, in descending weight order.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public Iterable<String> topMatches(String prefix, int k) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal value of k:" + k);
+		LinkedList<String> ret = new LinkedList<String>();
+		int node = findNode(prefix);
+		if (k == 0 || node < 0)
+			return ret;
+		IndexHeap nodes = new IndexHeap(16, true);
+		IndexHeap best = new IndexHeap(k, false);
+		nodes.add(node, mySubtreeMaxWeight[node]);
+		while (!nodes.isEmpty()) {
+			if (best.size() == k && nodes.peekKey() <= best.peekKey())
+				break;
+			node = nodes.remove();
+			int word = myWordIndex[node];
+			if (word >= 0) {
+				if (best.size() < k) {
+					best.add(word, myWordWeights[word]);
+				} else if (myWordWeights[word] > best.peekKey()) {
+					best.remove();
+					best.add(word, myWordWeights[word]);
+				}
+			}
+			for (int c = myFirstChild[node]; c < myFirstChild[node + 1]; c++) {
+				nodes.add(c, mySubtreeMaxWeight[c]);
+			}
+		}
+		while (!best.isEmpty()) {
+			ret.addFirst(myWords[best.remove()]);
+		}
+		return ret;
+	}
+
+	/**
+	 * Given a prefix, returns the largest-weight word starting with that
+	 * prefix, or an empty string if none exists. Follows the child whose
+	 * subtree max weight equals the current node's until reaching the word
+	 * that carries it.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	public String topMatch(String prefix) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		int node = findNode(prefix);
+		while (node >= 0) {
+			double max = mySubtreeMaxWeight[node];
+			int word = myWordIndex[node];
+			if (word >= 0 && myWordWeights[word] == max)
+				return myWords[word];
+			int next = -1;
+			for (int c = myFirstChild[node]; c < myFirstChild[node + 1]; c++) {
+				if (mySubtreeMaxWeight[c] == max) {
+					next = c;
+					break;
+				}
+			}
+			node = next;
+		}
+		return "";
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary,
+	 * return 0.0
+	 */
+	public double weightOf(String term) {
+		int node = findNode(term);
+		if (node < 0 || myWordIndex[node] < 0)
+			return 0.0;
+		return myWordWeights[myWordIndex[node]];
+	}
+
+	/**
+	 * Returns the number of nodes in the trie, counted the same way as
+	 * AutocompletorBenchmark.countNodes counts a TrieAutocomplete.
+	 */
+	public int nodeCount() {
+		return myNodeCount;
+	}
+
+	/**
+	 * Returns the number of bytes held by the node arrays and the word weight
+	 * array (not counting the word Strings themselves, which every
+	 * implementation keeps).
+	 */
+	public long sizeInBytes() {
+		return 2L * myLabels.length + 4L * myFirstChild.length + 4L * myWordIndex.length
+				+ 8L * mySubtreeMaxWeight.length + 8L * myWordWeights.length;
+	}
+}
@@ -0,0 +1,63 @@
+/**
+ * The state of one text field being typed into: the current prefix and
+ * whatever an Autocompletor needs to answer queries for it without starting
+ * from scratch. Appending a character narrows the previous prefix's position
+ * in the index instead of searching for the whole prefix again, and
+ * backspace returns to the position saved for the shorter prefix.
+ * 
+ * A session belongs to a single thread, and answers queries against the
+ * Autocompletor as it was when the session was created.
+ * 
+ */
+public interface CompletionSession {
+
+	/**
+	 * Appends ch to the current prefix.
+	 */
+	public void append(char ch);
+
+	/**
+	 * Removes the last character of the current prefix, if there is one.
+	 */
+	public void backspace();
+
+	/**
+	 * Returns the current prefix.
+	 */
+	public String getText();
+
+	/**
+	 * Changes the current prefix to text, keeping the work done for the
+	 * longest prefix text shares with the current one.
+	 * 
+	 * @throws NullPointerException
+	 *             if text is null
+	 */
+	public default void setText(String text) {
+		String current = getText();
+		int common = 0;
+		int max = Math.min(current.length(), text.length());
+		while (common < max && current.charAt(common) == text.charAt(common))
+			common++;
+		for (int i = current.length(); i > common; i--)
+			backspace();
+		for (int i = common; i < text.length(); i++)
+			append(text.charAt(i));
+	}
+
+	/**
+	 * Returns the same as topMatches(getText(), k) on the Autocompletor.
+	 */
+	public Iterable<String> topMatches(int k);
+
+	/**
+	 * Returns the same as weightedTopMatches(getText(), k) on the
+	 * Autocompletor.
+	 */
+	public MatchList weightedTopMatches(int k);
+
+	/**
+	 * Returns the same as topMatch(getText()) on the Autocompletor.
+	 */
+	public String topMatch();
+}
@@ -0,0 +1,211 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Writes synthetic term files in the format read by TermFileLoader, of any
+ * size, for measuring how the autocompletors scale past the dictionaries we
+ * have. Terms are streamed out one at a time, so the generator itself needs
+ * almost no memory even for 100M terms.
+ *
+ * Each term is built from three parts:
+ * <ul>
+ * <li>with probability stemFraction, a shared stem, one of a fixed set drawn
+ * with a power law so that a few stems head many terms, as common prefixes
+ * do in real text;</li>
+ * <li>random characters from the alphabet, up to a length drawn from a
+ * normal distribution around the mean length, clamped to [min, max];</li>
+ * <li>the term's index written in the alphabet with a fixed number of
+ * digits, which makes every term distinct.</li>
+ * </ul>
+ * The unique suffix means no term is shorter than log(count) / log(alphabet
+ * size) characters, rounded up. Weights are Zipfian: the term of rank r
+ * (from 1) has weight 10^12 / r^s, and ranks are assigned to the terms by a
+ * pseudorandom permutation, so weight is unrelated to position and order.
+ *
+ * The output depends only on the seed and the settings.
+ *
+ */
+public class DictionaryGenerator {
+
+	private static final double MAX_WEIGHT = 1E12;
+
+	private final long mySeed;
+	private char[] myAlphabet = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+	private int myMinLength = 1;
+	private int myMaxLength = 20;
+	private double myMeanLength = 8;
+	private int myStems = 1000;
+	private double myStemFraction = 0.5;
+	private double myExponent = 1;
+
+	/**
+	 * Creates a generator for seed, with lower case letters, terms of 1 to
+	 * 20 (mean 8) characters, half of them starting with one of 1000 stems,
+	 * and Zipf exponent 1.
+	 */
+	public DictionaryGenerator(long seed) {
+		mySeed = seed;
+	}
+
+	/**
+	 * Sets the characters terms are made of.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if alphabet has fewer than two characters
+	 */
+	public void setAlphabet(String alphabet) {
+		if (alphabet.length() < 2)
+			throw new IllegalArgumentException("alphabet needs at least two characters");
+		myAlphabet = alphabet.toCharArray();
+	}
+
+	/**
+	 * Sets the term length distribution: normal around mean, with a standard
+	 * deviation of a quarter of the range, clamped to [min, max].
+	 *
+	 * @throws IllegalArgumentException
+	 *             unless 1 <= min <= mean <= max
+	 */
+	public void setTermLength(int min, double mean, int max) {
+		if (min < 1 || mean < min || mean > max)
+			throw new IllegalArgumentException("Illegal term length: " + min + " <= " + mean + " <= " + max);
+		myMinLength = min;
+		myMeanLength = mean;
+		myMaxLength = max;
+	}
+
+	/**
+	 * Sets the number of shared stems and the fraction of terms that start
+	 * with one.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if stems is not positive or fraction is not in [0, 1]
+	 */
+	public void setSharedPrefixes(int stems, double fraction) {
+		if (stems <= 0 || !(fraction >= 0 && fraction <= 1))
+			throw new IllegalArgumentException("Illegal shared prefixes: " + stems + ", " + fraction);
+		myStems = stems;
+		myStemFraction = fraction;
+	}
+
+	/**
+	 * Sets the Zipf exponent s; 0 gives every term the same weight.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if s is negative
+	 */
+	public void setZipfExponent(double s) {
+		if (!(s >= 0))
+			throw new IllegalArgumentException("Illegal exponent:" + s);
+		myExponent = s;
+	}
+
+	/**
+	 * Writes a term file of count terms to file.
+	 */
+	public void write(File file, int count) throws IOException {
+		try (Writer out = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+			write(out, count);
+		}
+	}
+
+	/**
+	 * Writes a term file of count terms to out.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if count is negative
+	 */
+	public void write(Writer out, int count) throws IOException {
+		if (count < 0)
+			throw new IllegalArgumentException("Illegal count:" + count);
+		Random random = new Random(mySeed);
+		String[] stems = new String[myStems];
+		int stemLength = Math.max(2, (int) myMeanLength / 2);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < stems.length; i++) {
+			sb.setLength(0);
+			appendRandom(sb, 2 + random.nextInt(stemLength - 1), random);
+			stems[i] = sb.toString();
+		}
+		// rank(i) = (a * i + b) mod count is a permutation when a and count
+		// are coprime
+		long a = count <= 1 ? 1 : 1 + random.nextInt(count - 1);
+		while (gcd(a, count) != 1)
+			a++;
+		long b = count == 0 ? 0 : random.nextInt(count);
+		int suffix = digits(Math.max(0, count - 1));
+
+		out.write(count + "\n");
+		for (int i = 0; i < count; i++) {
+			sb.setLength(0);
+			if (random.nextDouble() < myStemFraction)
+				sb.append(stems[(int) (stems.length * Math.pow(random.nextDouble(), 3))]);
+			int length = (int) Math.round(myMeanLength + random.nextGaussian() * (myMaxLength - myMinLength) / 4);
+			length = Math.max(myMinLength, Math.min(myMaxLength, length));
+			appendRandom(sb, length - suffix - sb.length(), random);
+			appendIndex(sb, i, suffix);
+			long rank = (a * i + b) % count + 1;
+			long weight = Math.max(1, Math.round(MAX_WEIGHT / Math.pow(rank, myExponent)));
+			out.write(Long.toString(weight));
+			out.write('\t');
+			out.append(sb);
+			out.write('\n');
+		}
+	}
+
+	private void appendRandom(StringBuilder sb, int length, Random random) {
+		for (int j = 0; j < length; j++)
+			sb.append(myAlphabet[random.nextInt(myAlphabet.length)]);
+	}
+
+	/**
+	 * Returns the number of digits of i in base alphabet.length
+	 */
+	private int digits(int i) {
+		int digits = 1;
+		for (long limit = myAlphabet.length; i >= limit; limit *= myAlphabet.length)
+			digits++;
+		return digits;
+	}
+
+	/**
+	 * Appends i in base alphabet.length, most significant digit first,
+	 * padded to digits characters
+	 */
+	private void appendIndex(StringBuilder sb, int i, int digits) {
+		int end = sb.length() + digits;
+		sb.setLength(end);
+		for (int j = end - 1; j >= end - digits; j--) {
+			sb.setCharAt(j, myAlphabet[i % myAlphabet.length]);
+			i /= myAlphabet.length;
+		}
+	}
+
+	private static long gcd(long a, long b) {
+		while (b != 0) {
+			long t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: java DictionaryGenerator <count> <termfile> [seed]");
+			System.exit(1);
+		}
+		int count = Integer.parseInt(args[0]);
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1234;
+		long start = System.nanoTime();
+		new DictionaryGenerator(seed).write(new File(args[1]), count);
+		System.out.printf("Wrote %d terms to %s in %.1f s%n", count, args[1], (System.nanoTime() - start) / 1E9);
+	}
+}
@@ -0,0 +1,479 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * Autocompletor backed by a minimal acyclic finite-state transducer. A trie
+ * shares prefixes only; the FST also merges equal suffixes ("ing", " city"),
+ * so every distinct tail of the dictionary is stored once, and the whole
+ * automaton is a single byte array.
+ *
+ * Weights are turned into costs: the distinct weights are ranked in
+ * descending order, and a term's cost is the rank of its weight, so 0 is
+ * the heaviest. Costs are outputs on the arcs, and a term's cost is the sum
+ * of the outputs along its path plus the final output of its last state.
+ * The FST is built from the sorted terms in one pass, as in Mihov and
+ * Maurel's algorithm: the states of the current term's path stay mutable,
+ * and outputs are pushed towards the root, so every arc carries the
+ * smallest cost of any term below it less the costs above it. When the next
+ * term leaves the path, the states below the shared prefix are frozen:
+ * written to the byte array, or replaced by an identical state written
+ * earlier.
+ *
+ * Because outputs are pushed, the cost of a path to any state is exactly
+ * the cost of the best term through it. topMatch just follows arcs with
+ * output 0, and topMatches is a uniform-cost search from the state at the
+ * end of the prefix, which finds terms in order of cost and stops after k.
+ *
+ * Each state is stored as a flag byte (1 if a term ends there), the final
+ * output if so, the number of arcs, and then each arc's label, output and
+ * target address, all as variable-length integers. Arcs are in label order
+ * and are scanned linearly.
+ *
+ */
+public class FSTAutocomplete implements Autocompletor {
+
+	private static final int MAGIC = 0x46535431;
+
+	/**
+	 * The distinct weights in descending order; a cost is an index into it
+	 */
+	private final double[] myWeights;
+
+	private byte[] myBytes;
+	private int mySize;
+	private final int myRoot;
+
+	/**
+	 * A state on the path of the most recently added term, still open to
+	 * new arcs and output changes
+	 */
+	private static class UncompiledState {
+		boolean isFinal;
+		long finalOutput;
+		int numArcs;
+		char[] labels = new char[4];
+		long[] outputs = new long[4];
+		int[] targets = new int[4];
+
+		void clear() {
+			isFinal = false;
+			finalOutput = 0;
+			numArcs = 0;
+		}
+
+		void addArc(char label) {
+			if (numArcs == labels.length) {
+				labels = Arrays.copyOf(labels, 2 * numArcs);
+				outputs = Arrays.copyOf(outputs, 2 * numArcs);
+				targets = Arrays.copyOf(targets, 2 * numArcs);
+			}
+			labels[numArcs] = label;
+			outputs[numArcs] = 0;
+			targets[numArcs] = -1;
+			numArcs++;
+		}
+
+		/**
+		 * Adds output to every way out of this state
+		 */
+		void prependOutput(long output) {
+			for (int i = 0; i < numArcs; i++)
+				outputs[i] += output;
+			if (isFinal)
+				finalOutput += output;
+		}
+	}
+
+	/**
+	 * The bytes of a frozen state, as a key for finding an identical one
+	 */
+	private static class StateKey {
+		final byte[] myBuf;
+		final int myStart, myLength;
+
+		StateKey(byte[] buf, int start, int length) {
+			myBuf = buf;
+			myStart = start;
+			myLength = length;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = 1;
+			for (int i = myStart; i < myStart + myLength; i++)
+				h = 31 * h + myBuf[i];
+			return h;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			StateKey other = (StateKey) o;
+			return Arrays.equals(myBuf, myStart, myStart + myLength, other.myBuf, other.myStart,
+					other.myStart + other.myLength);
+		}
+	}
+
+	/**
+	 * Constructor method for FSTAutocomplete. If a word appears more than
+	 * once, its last weight is used, as in TrieAutocomplete.
+	 *
+	 * @param terms
+	 *            - The words we will autocomplete from
+	 * @param weights
+	 *            - Their weights, such that terms[i] has weight weights[i].
+	 * @throws NullPointerException
+	 *             if either argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different lengths, or a weight is
+	 *             negative
+	 */
+	public FSTAutocomplete(String[] terms, double[] weights) {
+		Term[] sorted = Term.sortedDistinct(terms, weights);
+		double[] ascending = new double[sorted.length];
+		for (int i = 0; i < sorted.length; i++)
+			ascending[i] = sorted[i].getWeight();
+		Arrays.sort(ascending);
+		int distinct = 0;
+		for (int i = 0; i < ascending.length; i++) {
+			if (distinct == 0 || ascending[i] != ascending[distinct - 1])
+				ascending[distinct++] = ascending[i];
+		}
+		myWeights = new double[distinct];
+		for (int i = 0; i < distinct; i++)
+			myWeights[i] = ascending[distinct - 1 - i];
+
+		myBytes = new byte[1 << 12];
+		HashMap<StateKey, Integer> registry = new HashMap<StateKey, Integer>();
+		UncompiledState[] frontier = new UncompiledState[16];
+		for (int i = 0; i < frontier.length; i++)
+			frontier[i] = new UncompiledState();
+		String last = "";
+		for (Term term : sorted) {
+			String word = term.getWord();
+			long output = distinct - 1 - Arrays.binarySearch(ascending, 0, distinct, term.getWeight());
+			if (word.length() >= frontier.length) {
+				int old = frontier.length;
+				frontier = Arrays.copyOf(frontier, Math.max(2 * old, word.length() + 1));
+				for (int i = old; i < frontier.length; i++)
+					frontier[i] = new UncompiledState();
+			}
+			int prefix = 0;
+			while (prefix < word.length() && prefix < last.length() && word.charAt(prefix) == last.charAt(prefix))
+				prefix++;
+			freezeTail(frontier, last.length(), prefix, registry);
+			for (int i = prefix; i < word.length(); i++) {
+				frontier[i].addArc(word.charAt(i));
+				frontier[i + 1].clear();
+			}
+			frontier[word.length()].isFinal = true;
+			// push the outputs along the shared prefix down to where the
+			// smaller of the old and new costs can stay
+			for (int i = 1; i <= prefix; i++) {
+				UncompiledState parent = frontier[i - 1];
+				long lastOutput = parent.outputs[parent.numArcs - 1];
+				long common = Math.min(output, lastOutput);
+				parent.outputs[parent.numArcs - 1] = common;
+				frontier[i].prependOutput(lastOutput - common);
+				output -= common;
+			}
+			if (word.length() == prefix)
+				frontier[prefix].finalOutput = output;
+			else
+				frontier[prefix].outputs[frontier[prefix].numArcs - 1] = output;
+			last = word;
+		}
+		freezeTail(frontier, last.length(), 0, registry);
+		myRoot = freeze(frontier[0], registry);
+		myBytes = Arrays.copyOf(myBytes, mySize);
+	}
+
+	/**
+	 * Opens an FST written by toByteArray.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if bytes does not hold a serialized FSTAutocomplete
+	 */
+	public FSTAutocomplete(byte[] bytes) {
+		ByteBuffer buf = ByteBuffer.wrap(bytes);
+		if (bytes.length < 16 || buf.getInt() != MAGIC)
+			throw new IllegalArgumentException("Not a serialized FSTAutocomplete");
+		int weights = buf.getInt();
+		myRoot = buf.getInt();
+		mySize = buf.getInt();
+		if (weights < 0 || mySize < 0 || myRoot < 0 || myRoot >= Math.max(mySize, 1)
+				|| 16 + 8L * weights + mySize != bytes.length)
+			throw new IllegalArgumentException("Serialized FSTAutocomplete is truncated");
+		myWeights = new double[weights];
+		buf.asDoubleBuffer().get(myWeights);
+		myBytes = Arrays.copyOfRange(bytes, 16 + 8 * myWeights.length, 16 + 8 * myWeights.length + mySize);
+	}
+
+	/**
+	 * Returns the FST as bytes that the byte[] constructor reads back: a
+	 * header, the distinct weights and the states.
+	 */
+	public byte[] toByteArray() {
+		ByteBuffer buf = ByteBuffer.allocate(16 + 8 * myWeights.length + mySize);
+		buf.putInt(MAGIC).putInt(myWeights.length).putInt(myRoot).putInt(mySize);
+		for (double weight : myWeights)
+			buf.putDouble(weight);
+		buf.put(myBytes, 0, mySize);
+		return buf.array();
+	}
+
+	/**
+	 * Freezes the states of the previous term below its first prefix
+	 * characters, deepest first, pointing each parent's last arc at the
+	 * frozen child.
+	 */
+	private void freezeTail(UncompiledState[] frontier, int length, int prefix,
+			HashMap<StateKey, Integer> registry) {
+		for (int i = length; i > prefix; i--) {
+			int address = freeze(frontier[i], registry);
+			frontier[i - 1].targets[frontier[i - 1].numArcs - 1] = address;
+		}
+	}
+
+	/**
+	 * Returns the address of a frozen state equal to state, writing it to
+	 * the byte array if there is none yet.
+	 */
+	private int freeze(UncompiledState state, HashMap<StateKey, Integer> registry) {
+		int start = mySize;
+		writeVLong(state.isFinal ? 1 : 0);
+		if (state.isFinal)
+			writeVLong(state.finalOutput);
+		writeVLong(state.numArcs);
+		for (int i = 0; i < state.numArcs; i++) {
+			writeVLong(state.labels[i]);
+			writeVLong(state.outputs[i]);
+			writeVLong(state.targets[i]);
+		}
+		StateKey key = new StateKey(myBytes, start, mySize - start);
+		Integer existing = registry.get(key);
+		if (existing != null) {
+			mySize = start;
+			return existing;
+		}
+		// the key must not see later growth of myBytes
+		registry.put(new StateKey(Arrays.copyOfRange(myBytes, start, mySize), 0, mySize - start), start);
+		return start;
+	}
+
+	private void writeVLong(long value) {
+		if (mySize + 10 > myBytes.length)
+			myBytes = Arrays.copyOf(myBytes, 2 * myBytes.length);
+		while ((value & ~0x7FL) != 0) {
+			myBytes[mySize++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		myBytes[mySize++] = (byte) value;
+	}
+
+	/**
+	 * Reads the states and arcs of the byte array. pos is the address of the
+	 * next byte; readState must be called at a state's address before its
+	 * arcs are read with readArc.
+	 */
+	private class Reader {
+		int pos;
+		boolean isFinal;
+		long finalOutput;
+		int arcsLeft;
+		char label;
+		long output;
+		int target;
+
+		void readState(int address) {
+			pos = address;
+			isFinal = readVLong() == 1;
+			finalOutput = isFinal ? readVLong() : 0;
+			arcsLeft = (int) readVLong();
+		}
+
+		/**
+		 * Reads the next arc of the current state, or returns false if there
+		 * are no more
+		 */
+		boolean readArc() {
+			if (arcsLeft == 0)
+				return false;
+			arcsLeft--;
+			label = (char) readVLong();
+			output = readVLong();
+			target = (int) readVLong();
+			return true;
+		}
+
+		/**
+		 * Finds the arc labelled ch out of the state at address, or returns
+		 * false if there is none
+		 */
+		boolean findArc(int address, char ch) {
+			readState(address);
+			while (readArc()) {
+				if (label == ch)
+					return true;
+				if (label > ch)
+					return false;
+			}
+			return false;
+		}
+
+		long readVLong() {
+			long value = 0;
+			for (int shift = 0;; shift += 7) {
+				byte b = myBytes[pos++];
+				value |= (long) (b & 0x7F) << shift;
+				if (b >= 0)
+					return value;
+			}
+		}
+	}
+
+	/**
+	 * Follows prefix from the root. Returns the address of the state it
+	 * reaches and stores the cost of the path in cost[0], or returns -1 if
+	 * no term starts with prefix.
+	 */
+	private int follow(Reader reader, String prefix, long[] cost) {
+		int state = myRoot;
+		long total = 0;
+		for (int i = 0; i < prefix.length(); i++) {
+			if (!reader.findArc(state, prefix.charAt(i)))
+				return -1;
+			total += reader.output;
+			state = reader.target;
+		}
+		cost[0] = total;
+		return state;
+	}
+
+	/**
+	 * A path in the uniform-cost search: a state reached by a chain of
+	 * labels, or (with state -1) a complete term
+	 */
+	private static class Path implements Comparable<Path> {
+		final long myCost;
+		final int myState;
+		final Path myParent;
+		final char myLabel;
+
+		Path(long cost, int state, Path parent, char label) {
+			myCost = cost;
+			myState = state;
+			myParent = parent;
+			myLabel = label;
+		}
+
+		@Override
+		public int compareTo(Path o) {
+			return Long.compare(myCost, o.myCost);
+		}
+
+		String toTerm(String prefix) {
+			StringBuilder sb = new StringBuilder();
+			for (Path p = myState < 0 ? myParent : this; p.myParent != null; p = p.myParent)
+				sb.append(p.myLabel);
+			return prefix + sb.reverse();
+		}
+	}
+
+	/**
+	 * Required by the Autocompletor interface. Returns the k words with the
+	 * largest weight which start with prefix, in descending weight order.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public Iterable<String> topMatches(String prefix, int k) {
+		return weightedTopMatches(prefix, k);
+	}
+
+	/**
+	 * Returns the same matches as topMatches, with their weights.
+	 */
+	@Override
+	public MatchList weightedTopMatches(String prefix, int k) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal value of k:" + k);
+		MatchList ret = new MatchList(Math.min(k, 16));
+		Reader reader = new Reader();
+		long[] cost = new long[1];
+		int state = follow(reader, prefix, cost);
+		if (k == 0 || state < 0)
+			return ret;
+		PriorityQueue<Path> queue = new PriorityQueue<Path>();
+		queue.add(new Path(cost[0], state, null, '-'));
+		while (!queue.isEmpty() && ret.size() < k) {
+			Path path = queue.remove();
+			if (path.myState < 0) {
+				ret.add(path.toTerm(prefix), myWeights[(int) path.myCost]);
+				continue;
+			}
+			reader.readState(path.myState);
+			if (reader.isFinal)
+				queue.add(new Path(path.myCost + reader.finalOutput, -1, path, '-'));
+			while (reader.readArc())
+				queue.add(new Path(path.myCost + reader.output, reader.target, path, reader.label));
+		}
+		return ret;
+	}
+
+	/**
+	 * Given a prefix, returns the largest-weight word starting with that
+	 * prefix, or an empty string if none exists. Follows arcs with output 0
+	 * from the end of the prefix until reaching a final state with final
+	 * output 0.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	public String topMatch(String prefix) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		Reader reader = new Reader();
+		int state = follow(reader, prefix, new long[1]);
+		if (state < 0)
+			return "";
+		StringBuilder sb = new StringBuilder(prefix);
+		while (true) {
+			reader.readState(state);
+			if (reader.isFinal && reader.finalOutput == 0)
+				return sb.toString();
+			while (reader.readArc() && reader.output != 0)
+				;
+			sb.append(reader.label);
+			state = reader.target;
+		}
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary,
+	 * return 0.0
+	 */
+	public double weightOf(String term) {
+		Reader reader = new Reader();
+		long[] cost = new long[1];
+		int state = follow(reader, term, cost);
+		if (state < 0)
+			return 0.0;
+		reader.readState(state);
+		return reader.isFinal ? myWeights[(int) (cost[0] + reader.finalOutput)] : 0.0;
+	}
+
+	/**
+	 * Returns the number of bytes held by the FST and the distinct weights
+	 * (not counting anything for the terms themselves, which the FST
+	 * replaces).
+	 */
+	public long sizeInBytes() {
+		return mySize + 8L * myWeights.length;
+	}
+}
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+
+/**
+ * A binary heap of int ids ordered by a double key, used by the array-backed
+ * Autocompletors in place of a PriorityQueue of boxed objects. The heap is
+ * either a min-heap (smallest key on top) or a max-heap (largest key on top)
+ * and grows as needed; after it has grown to its working size no further
+ * allocation happens, so one heap can be cleared and reused across queries.
+ *
+ */
+public class IndexHeap {
+
+	private int[] myIds;
+	private double[] myKeys;
+	private int mySize;
+	private final boolean isMaxHeap;
+
+	/**
+	 * @param capacity
+	 *            - Initial number of entries the heap can hold without growing
+	 * @param maxHeap
+	 *            - true if the largest key should be on top, false for the
+	 *            smallest
+	 */
+	public IndexHeap(int capacity, boolean maxHeap) {
+		capacity = Math.max(capacity, 1);
+		myIds = new int[capacity];
+		myKeys = new double[capacity];
+		isMaxHeap = maxHeap;
+	}
+
+	public int size() {
+		return mySize;
+	}
+
+	public boolean isEmpty() {
+		return mySize == 0;
+	}
+
+	public void clear() {
+		mySize = 0;
+	}
+
+	/**
+	 * Adds id with the given key.
+	 */
+	public void add(int id, double key) {
+		if (mySize == myIds.length) {
+			myIds = Arrays.copyOf(myIds, mySize * 2);
+			myKeys = Arrays.copyOf(myKeys, mySize * 2);
+		}
+		int i = mySize++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!above(key, myKeys[parent]))
+				break;
+			myIds[i] = myIds[parent];
+			myKeys[i] = myKeys[parent];
+			i = parent;
+		}
+		myIds[i] = id;
+		myKeys[i] = key;
+	}
+
+	/**
+	 * Returns the id on top of the heap without removing it.
+	 */
+	public int peek() {
+		return myIds[0];
+	}
+
+	/**
+	 * Returns the key of the id on top of the heap.
+	 */
+	public double peekKey() {
+		return myKeys[0];
+	}
+
+	/**
+	 * Removes and returns the id on top of the heap.
+	 */
+	public int remove() {
+		int top = myIds[0];
+		mySize--;
+		if (mySize > 0) {
+			int id = myIds[mySize];
+			double key = myKeys[mySize];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= mySize)
+					break;
+				if (child + 1 < mySize && above(myKeys[child + 1], myKeys[child]))
+					child++;
+				if (!above(myKeys[child], key))
+					break;
+				myIds[i] = myIds[child];
+				myKeys[i] = myKeys[child];
+				i = child;
+			}
+			myIds[i] = id;
+			myKeys[i] = key;
+		}
+		return top;
+	}
+
+	/*
+	 * Whether an entry with key a belongs strictly above an entry with key b.
+	 */
+	private boolean above(double a, double b) {
+		return isMaxHeap ? a > b : a < b;
+	}
+}
@@ -0,0 +1,350 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Autocompletor that matches anywhere in a term instead of only at its
+ * start: topMatches(s, k) returns the k heaviest terms containing s, and
+ * topMatch(s) the heaviest one, so "york" finds "new york".
+ *
+ * The sorted distinct terms are concatenated into one text, each followed
+ * by a separator, and a suffix array lists the start of every suffix of
+ * the text in sorted order. The suffixes that start with s, i.e. the
+ * occurrences of s, are then one contiguous range, found by two binary
+ * searches. Each suffix is labelled with the weight of the term it lies
+ * in, and a RangeMaxIndex over those weights gives the heaviest occurrence
+ * in any range; the top k are found by repeatedly splitting the range
+ * around its heaviest occurrence, as BinarySearchAutocomplete does for
+ * prefixes. A term that contains s more than once occurs more than once in
+ * the range, and its later occurrences are skipped.
+ *
+ * The suffix array is built by prefix doubling with radix sorts, in
+ * O(N log L) time for a text of N characters whose longest term has L. Every
+ * separator is given its own rank, below every character, so no comparison
+ * runs past the end of a term. The index takes about 22 bytes per
+ * character of the terms, counting a separator per term. Terms must not
+ * contain the character '\0', which is the separator in the text.
+ *
+ */
+public class InfixAutocomplete implements Autocompletor {
+
+	/**
+	 * The distinct words in lexicographic order, and their weights
+	 */
+	private final String[] myWords;
+	private final double[] myWordWeights;
+
+	/**
+	 * The words, each followed by a '\0'
+	 */
+	private final char[] myText;
+
+	/**
+	 * Start in myText of each suffix, in sorted order, and the index of the
+	 * word it lies in (for a separator, the word it ends)
+	 */
+	private final int[] mySuffixes;
+	private final int[] mySuffixWords;
+
+	/**
+	 * Over the weight of the word of each suffix
+	 */
+	private final RangeMaxIndex myRangeMax;
+	private final double[] mySuffixWeights;
+
+	/**
+	 * Constructor method for InfixAutocomplete. If a word appears more than
+	 * once, its last weight is used, as in TrieAutocomplete.
+	 *
+	 * @param terms
+	 *            - The words we will autocomplete from
+	 * @param weights
+	 *            - Their weights, such that terms[i] has weight weights[i].
+	 * @throws NullPointerException
+	 *             if either argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different lengths, a weight is
+	 *             negative, or the terms are too long for one text
+	 */
+	public InfixAutocomplete(String[] terms, double[] weights) {
+		Term[] sorted = Term.sortedDistinct(terms, weights);
+		int n = sorted.length;
+		myWords = new String[n];
+		myWordWeights = new double[n];
+		long length = 0;
+		for (int i = 0; i < n; i++) {
+			myWords[i] = sorted[i].getWord();
+			myWordWeights[i] = sorted[i].getWeight();
+			length += myWords[i].length() + 1;
+		}
+		if (length > Integer.MAX_VALUE - 65536)
+			throw new IllegalArgumentException("Terms too long for one text");
+		myText = new char[(int) length];
+		int[] wordAt = new int[myText.length];
+		int[] keys = new int[myText.length];
+		int pos = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < myWords[i].length(); j++) {
+				myText[pos] = myWords[i].charAt(j);
+				keys[pos] = n + myText[pos];
+				wordAt[pos++] = i;
+			}
+			// separators rank below every character, and below each other in
+			// word order
+			keys[pos] = i;
+			wordAt[pos++] = i;
+		}
+
+		// the suffixes that start at a separator only match "", which every
+		// word contains, but they are kept so that the empty word is found
+		mySuffixes = suffixArray(keys, n + 65536);
+		mySuffixWords = new int[mySuffixes.length];
+		mySuffixWeights = new double[mySuffixes.length];
+		for (int j = 0; j < mySuffixes.length; j++) {
+			mySuffixWords[j] = wordAt[mySuffixes[j]];
+			mySuffixWeights[j] = myWordWeights[mySuffixWords[j]];
+		}
+		myRangeMax = new RangeMaxIndex(mySuffixWeights);
+	}
+
+	/**
+	 * Returns the suffix array of keys, each of which is in [0, alphabet),
+	 * built by prefix doubling: after the round for h, suffixes are sorted
+	 * and ranked by their first 2h keys, using the ranks of the previous
+	 * round as the two halves of a radix sort key. Stops as soon as every
+	 * rank is distinct.
+	 */
+	static int[] suffixArray(int[] keys, int alphabet) {
+		int length = keys.length;
+		int[] sa = new int[length];
+		int[] rank = new int[length];
+		int[] tmp = new int[length];
+		int[] counts = new int[Math.max(alphabet, length) + 1];
+		if (length == 0)
+			return sa;
+		for (int key : keys)
+			counts[key + 1]++;
+		for (int i = 1; i <= alphabet; i++)
+			counts[i] += counts[i - 1];
+		for (int i = 0; i < length; i++)
+			sa[counts[keys[i]]++] = i;
+		for (int j = 1; j < length; j++)
+			rank[sa[j]] = rank[sa[j - 1]] + (keys[sa[j]] != keys[sa[j - 1]] ? 1 : 0);
+
+		for (int h = 1; rank[sa[length - 1]] < length - 1; h <<= 1) {
+			// order by the second half: suffixes too short to have one
+			// first, then the others by the rank of their second half
+			int p = 0;
+			for (int i = length - h; i < length; i++)
+				tmp[p++] = i;
+			for (int j = 0; j < length; j++) {
+				if (sa[j] >= h)
+					tmp[p++] = sa[j] - h;
+			}
+			// stable counting sort by the first half
+			int ranks = rank[sa[length - 1]] + 1;
+			Arrays.fill(counts, 0, ranks + 1, 0);
+			for (int i = 0; i < length; i++)
+				counts[rank[i] + 1]++;
+			for (int r = 1; r <= ranks; r++)
+				counts[r] += counts[r - 1];
+			for (int j = 0; j < length; j++)
+				sa[counts[rank[tmp[j]]]++] = tmp[j];
+			tmp[sa[0]] = 0;
+			for (int j = 1; j < length; j++) {
+				int prev = sa[j - 1];
+				int cur = sa[j];
+				boolean same = rank[prev] == rank[cur] && prev + h < length && cur + h < length
+						&& rank[prev + h] == rank[cur + h];
+				tmp[cur] = tmp[prev] + (same ? 0 : 1);
+			}
+			int[] swap = rank;
+			rank = tmp;
+			tmp = swap;
+		}
+		return sa;
+	}
+
+	/**
+	 * Compares the suffix at start with s, considering only the first
+	 * s.length() characters of the suffix, so 0 means the suffix starts with
+	 * s. A separator is smaller than any character.
+	 */
+	private int compareSuffix(int start, String s) {
+		for (int i = 0; i < s.length(); i++) {
+			int pos = start + i;
+			if (pos == myText.length || myText[pos] == '\0')
+				return -1;
+			if (myText[pos] != s.charAt(i))
+				return myText[pos] < s.charAt(i) ? -1 : 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the index of the first suffix that is not smaller than s (if
+	 * after is false), or not smaller and not starting with s (if after is
+	 * true)
+	 */
+	private int searchSuffixes(String s, boolean after) {
+		int low = 0;
+		int high = mySuffixes.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			int cmp = compareSuffix(mySuffixes[middle], s);
+			if (cmp < 0 || (after && cmp == 0))
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Required by the Autocompletor interface. Returns the k words with the
+	 * largest weight which contain infix, in descending weight order.
+	 *
+	 * @throws NullPointerException
+	 *             if infix is null
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public Iterable<String> topMatches(String infix, int k) {
+		return weightedTopMatches(infix, k);
+	}
+
+	/**
+	 * Returns the same matches as topMatches, with their weights.
+	 */
+	@Override
+	public MatchList weightedTopMatches(String infix, int k) {
+		if (infix == null)
+			throw new NullPointerException("prefix is null!");
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal value of k:" + k);
+		MatchList ret = new MatchList(Math.min(k, 16));
+		int first = searchSuffixes(infix, false);
+		int last = searchSuffixes(infix, true) - 1;
+		if (k == 0 || first > last)
+			return ret;
+		int capacity = 2 * k + 1;
+		int[] lo = new int[capacity];
+		int[] hi = new int[capacity];
+		int[] max = new int[capacity];
+		int[] found = new int[Math.min(k, 16)];
+		IndexHeap ranges = new IndexHeap(capacity, true);
+		int slots = 0;
+		lo[slots] = first;
+		hi[slots] = last;
+		max[slots] = myRangeMax.argMax(first, last);
+		ranges.add(slots, mySuffixWeights[max[slots]]);
+		slots++;
+		while (ret.size() < k && !ranges.isEmpty()) {
+			int slot = ranges.remove();
+			int m = max[slot];
+			int word = mySuffixWords[m];
+			if (!contains(found, ret.size(), word)) {
+				if (ret.size() == found.length)
+					found = Arrays.copyOf(found, 2 * found.length);
+				found[ret.size()] = word;
+				ret.add(myWords[word], myWordWeights[word]);
+			}
+			if (slots + 2 > lo.length) {
+				lo = Arrays.copyOf(lo, 2 * lo.length);
+				hi = Arrays.copyOf(hi, 2 * hi.length);
+				max = Arrays.copyOf(max, 2 * max.length);
+			}
+			if (lo[slot] < m) {
+				lo[slots] = lo[slot];
+				hi[slots] = m - 1;
+				max[slots] = myRangeMax.argMax(lo[slots], hi[slots]);
+				ranges.add(slots, mySuffixWeights[max[slots]]);
+				slots++;
+			}
+			if (m < hi[slot]) {
+				lo[slots] = m + 1;
+				hi[slots] = hi[slot];
+				max[slots] = myRangeMax.argMax(lo[slots], hi[slots]);
+				ranges.add(slots, mySuffixWeights[max[slots]]);
+				slots++;
+			}
+		}
+		return ret;
+	}
+
+	private static boolean contains(int[] a, int size, int value) {
+		for (int i = 0; i < size; i++) {
+			if (a[i] == value)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Given an infix, returns the largest-weight word containing it, or an
+	 * empty string if none exists.
+	 *
+	 * @throws NullPointerException
+	 *             if infix is null
+	 */
+	public String topMatch(String infix) {
+		if (infix == null)
+			throw new NullPointerException("prefix is null!");
+		int first = searchSuffixes(infix, false);
+		int last = searchSuffixes(infix, true) - 1;
+		if (first > last)
+			return "";
+		return myWords[mySuffixWords[myRangeMax.argMax(first, last)]];
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary,
+	 * return 0.0
+	 */
+	public double weightOf(String term) {
+		int i = Arrays.binarySearch(myWords, term);
+		return i < 0 ? 0.0 : myWordWeights[i];
+	}
+
+	/**
+	 * Times building the index for a term file and infix queries of two to
+	 * five characters taken from the middle of random terms, against a scan
+	 * of every term with String.contains.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("usage: java InfixAutocomplete <termfile>");
+			System.exit(1);
+		}
+		TermFileLoader data = new TermFileLoader(new File(args[0]), true);
+		System.out.println(data);
+		String[] terms = data.getTerms();
+		double[] weights = data.getWeights();
+		long start = System.nanoTime();
+		InfixAutocomplete auto = new InfixAutocomplete(terms, weights);
+		System.out.printf("Built suffix array of %d suffixes in %.2f s%n", auto.mySuffixes.length,
+				(System.nanoTime() - start) / 1E9);
+		Random random = new Random(1234);
+		String[] queries = new String[10000];
+		for (int i = 0; i < queries.length; i++) {
+			String term = terms[random.nextInt(terms.length)];
+			int from = random.nextInt(term.length());
+			queries[i] = term.substring(from, Math.min(term.length(), from + 2 + random.nextInt(4)));
+		}
+		for (int round = 0; round < 2; round++) {
+			start = System.nanoTime();
+			for (String query : queries)
+				auto.topMatches(query, 10);
+			System.out.printf("suffix array: %.1f us per topMatches(infix, 10)%n",
+					(System.nanoTime() - start) / 1E3 / queries.length);
+		}
+		start = System.nanoTime();
+		int scans = 20;
+		for (int i = 0; i < scans; i++) {
+			for (String term : terms)
+				term.contains(queries[i]);
+		}
+		System.out.printf("scan: %.1f us per query%n", (System.nanoTime() - start) / 1E3 / scans);
+	}
+}
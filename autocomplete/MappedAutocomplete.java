@@ -0,0 +1,338 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Autocompletor that answers queries directly from a prebuilt index file
+ * mapped into memory with FileChannel.map. Opening an index does no parsing
+ * and creates no per-term objects; the operating system pages the file in
+ * as queries touch it, and a String is only created for a term that is
+ * returned as a result.
+ *
+ * An index is written from a built BinarySearchAutocomplete or
+ * TrieAutocomplete (or straight from terms and weights) by the save methods,
+ * or from a term file by running main. Its layout, in big-endian order, is
+ *
+ * <pre>
+ * int    MAGIC
+ * int    n, the number of terms
+ * int    c, the total number of characters in all terms
+ * int    (unused, keeps the weights 8-byte aligned)
+ * double weights[n]      weights, in lexicographic order of the terms
+ * int    offsets[n + 1]  term i is chars[offsets[i] .. offsets[i+1]-1]
+ * char   chars[c]        the terms, concatenated in lexicographic order
+ * </pre>
+ *
+ * Queries use the same binary searches as ColumnarBinarySearchAutocomplete,
+ * reading characters from the mapped buffer. A single mapping limits an index
+ * to 2GB.
+ *
+ */
+public class MappedAutocomplete implements Autocompletor, Closeable {
+
+	/**
+	 * File name suffix used for index files
+	 */
+	public static final String SUFFIX = ".idx";
+
+	private static final int MAGIC = 0x41434958;
+	private static final int HEADER_BYTES = 16;
+
+	private final int mySize;
+	private DoubleBuffer myWeights;
+	private IntBuffer myOffsets;
+	private CharBuffer myChars;
+
+	/**
+	 * Opens and maps the index in file.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be read or is not an index
+	 */
+	public MappedAutocomplete(File file) throws IOException {
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC)
+			throw new IOException(file + " is not an autocomplete index");
+		mySize = buffer.getInt(4);
+		int chars = buffer.getInt(8);
+		if (mySize < 0 || chars < 0 || buffer.capacity() != HEADER_BYTES + 12L * mySize + 4 + 2L * chars)
+			throw new IOException(file + " is truncated");
+		int offsetsStart = HEADER_BYTES + 8 * mySize;
+		int charsStart = offsetsStart + 4 * (mySize + 1);
+		myWeights = slice(buffer, HEADER_BYTES, offsetsStart).asDoubleBuffer();
+		myOffsets = slice(buffer, offsetsStart, charsStart).asIntBuffer();
+		myChars = slice(buffer, charsStart, buffer.capacity()).asCharBuffer();
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int start, int end) {
+		ByteBuffer copy = buffer.duplicate();
+		copy.position(start).limit(end);
+		return copy.slice();
+	}
+
+	/**
+	 * Writes an index for the terms of a BinarySearchAutocomplete, which are
+	 * already in order. BinarySearchAutocomplete keeps repeated words, in
+	 * input order since its sort is stable, so of each run of equal words
+	 * only the last is written, as Term.sortedDistinct would.
+	 */
+	public static void save(BinarySearchAutocomplete auto, File file) throws IOException {
+		Term[] terms = auto.myTerms;
+		int size = 0;
+		Term[] distinct = new Term[terms.length];
+		for (int i = 0; i < terms.length; i++) {
+			if (i + 1 == terms.length || !terms[i].getWord().equals(terms[i + 1].getWord()))
+				distinct[size++] = terms[i];
+		}
+		write(size == terms.length ? terms : Arrays.copyOf(distinct, size), file);
+	}
+
+	/**
+	 * Writes an index for the words of a TrieAutocomplete.
+	 */
+	public static void save(TrieAutocomplete auto, File file) throws IOException {
+		ArrayList<Term> words = new ArrayList<Term>();
+		collectWords(auto.myRoot, words);
+		Term[] sorted = words.toArray(new Term[words.size()]);
+		Arrays.sort(sorted);
+		write(sorted, file);
+	}
+
+	/**
+	 * Writes an index for the given terms and weights. If a word appears more
+	 * than once, its last weight is used.
+	 */
+	public static void save(String[] terms, double[] weights, File file) throws IOException {
+		write(Term.sortedDistinct(terms, weights), file);
+	}
+
+	private static void collectWords(Node curr, ArrayList<Term> words) {
+		if (curr.isWord)
+			words.add(new Term(curr.myWord, curr.myWeight));
+		for (Node child : curr.children.values()) {
+			collectWords(child, words);
+		}
+	}
+
+	private static void write(Term[] sorted, File file) throws IOException {
+		long chars = 0;
+		for (Term t : sorted)
+			chars += t.getWord().length();
+		if (HEADER_BYTES + 12L * sorted.length + 2 * chars + 4 > Integer.MAX_VALUE)
+			throw new IOException("Too many terms for a single mapped index");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(sorted.length);
+			out.writeInt((int) chars);
+			out.writeInt(0);
+			for (Term t : sorted)
+				out.writeDouble(t.getWeight());
+			int offset = 0;
+			for (Term t : sorted) {
+				out.writeInt(offset);
+				offset += t.getWord().length();
+			}
+			out.writeInt(offset);
+			for (Term t : sorted)
+				out.writeChars(t.getWord());
+		}
+	}
+
+	/**
+	 * Unmaps nothing immediately (Java has no explicit unmap), but drops the
+	 * buffers so the mapping is released once collected; queries after close
+	 * throw IllegalStateException.
+	 */
+	public void close() {
+		myWeights = null;
+		myOffsets = null;
+		myChars = null;
+	}
+
+	private void ensureOpen() {
+		if (myChars == null)
+			throw new IllegalStateException("index is closed");
+	}
+
+	/**
+	 * Returns the number of terms in the index.
+	 */
+	public int size() {
+		return mySize;
+	}
+
+	/**
+	 * Returns the i-th term in lexicographic order.
+	 */
+	public String termAt(int i) {
+		ensureOpen();
+		int start = myOffsets.get(i);
+		int end = myOffsets.get(i + 1);
+		char[] word = new char[end - start];
+		for (int j = 0; j < word.length; j++)
+			word[j] = myChars.get(start + j);
+		return new String(word);
+	}
+
+	/**
+	 * Compares term i to prefix using only its first prefix.length()
+	 * characters, as ColumnarBinarySearchAutocomplete.comparePrefix does.
+	 */
+	private int comparePrefix(int i, String prefix) {
+		int start = myOffsets.get(i);
+		int length = myOffsets.get(i + 1) - start;
+		int len = Math.min(length, prefix.length());
+		for (int j = 0; j < len; j++) {
+			char a = myChars.get(start + j);
+			char b = prefix.charAt(j);
+			if (a != b)
+				return a - b;
+		}
+		return length < prefix.length() ? -1 : 0;
+	}
+
+	/**
+	 * Compares term i to word lexicographically.
+	 */
+	private int compare(int i, String word) {
+		int cmp = comparePrefix(i, word);
+		if (cmp != 0)
+			return cmp;
+		return (myOffsets.get(i + 1) - myOffsets.get(i)) - word.length();
+	}
+
+	private int firstIndexOf(String prefix) {
+		int low = 0;
+		int high = mySize;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (comparePrefix(middle, prefix) < 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	private int lastIndexOf(String prefix) {
+		int low = 0;
+		int high = mySize;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (comparePrefix(middle, prefix) <= 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Required by the Autocompletor interface. Returns the k words with the
+	 * largest weight which start with prefix, in descending weight order.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public Iterable<String> topMatches(String prefix, int k) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal value of k:" + k);
+		ensureOpen();
+		LinkedList<String> ret = new LinkedList<String>();
+		if (k == 0)
+			return ret;
+		int last = lastIndexOf(prefix);
+		IndexHeap best = new IndexHeap(k, false);
+		for (int i = firstIndexOf(prefix); i < last; i++) {
+			double weight = myWeights.get(i);
+			if (best.size() < k) {
+				best.add(i, weight);
+			} else if (weight > best.peekKey()) {
+				best.remove();
+				best.add(i, weight);
+			}
+		}
+		while (!best.isEmpty()) {
+			ret.addFirst(termAt(best.remove()));
+		}
+		return ret;
+	}
+
+	/**
+	 * Given a prefix, returns the largest-weight word starting with that
+	 * prefix, or an empty string if none exists.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	public String topMatch(String prefix) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		ensureOpen();
+		int last = lastIndexOf(prefix);
+		int max = -1;
+		for (int i = firstIndexOf(prefix); i < last; i++) {
+			if (max < 0 || myWeights.get(i) > myWeights.get(max))
+				max = i;
+		}
+		return max < 0 ? "" : termAt(max);
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary,
+	 * return 0.0
+	 */
+	public double weightOf(String term) {
+		ensureOpen();
+		int low = 0;
+		int high = mySize - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int cmp = compare(middle, term);
+			if (cmp < 0)
+				low = middle + 1;
+			else if (cmp > 0)
+				high = middle - 1;
+			else
+				return myWeights.get(middle);
+		}
+		return 0.0;
+	}
+
+	/**
+	 * Converts a term file to an index file.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: java MappedAutocomplete <termfile> <indexfile" + SUFFIX + ">");
+			System.exit(1);
+		}
+		TermFileLoader data = new TermFileLoader(new File(args[0]), false);
+		System.out.println(data);
+		save(data.getTerms(), data.getWeights(), new File(args[1]));
+		long start = System.nanoTime();
+		MappedAutocomplete index = new MappedAutocomplete(new File(args[1]));
+		System.out.println("Wrote " + index.size() + " terms; reopening took "
+				+ (System.nanoTime() - start) / 1E6 + " ms");
+	}
+}
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An array-backed list of matching terms and their weights, as returned by
+ * topMatches. Terms and weights are held in parallel arrays, so a list can be
+ * cleared and refilled without allocating once it has reached its working
+ * capacity. Iterating over a MatchList yields just the terms.
+ *
+ */
+public class MatchList implements Iterable<String> {
+
+	private String[] myTerms;
+	private double[] myWeights;
+	private int mySize;
+
+	/**
+	 * @param capacity
+	 *            - Number of matches the list can hold without growing
+	 */
+	public MatchList(int capacity) {
+		capacity = Math.max(capacity, 1);
+		myTerms = new String[capacity];
+		myWeights = new double[capacity];
+	}
+
+	public int size() {
+		return mySize;
+	}
+
+	public boolean isEmpty() {
+		return mySize == 0;
+	}
+
+	/**
+	 * Returns the i-th term of the list.
+	 */
+	public String getTerm(int i) {
+		if (i < 0 || i >= mySize)
+			throw new IndexOutOfBoundsException("Index " + i + " of " + mySize);
+		return myTerms[i];
+	}
+
+	/**
+	 * Returns the weight of the i-th term of the list.
+	 */
+	public double getWeight(int i) {
+		if (i < 0 || i >= mySize)
+			throw new IndexOutOfBoundsException("Index " + i + " of " + mySize);
+		return myWeights[i];
+	}
+
+	public void clear() {
+		Arrays.fill(myTerms, 0, mySize, null);
+		mySize = 0;
+	}
+
+	/**
+	 * Appends term with the given weight.
+	 */
+	public void add(String term, double weight) {
+		if (mySize == myTerms.length) {
+			myTerms = Arrays.copyOf(myTerms, 2 * mySize);
+			myWeights = Arrays.copyOf(myWeights, 2 * mySize);
+		}
+		myTerms[mySize] = term;
+		myWeights[mySize] = weight;
+		mySize++;
+	}
+
+	/**
+	 * Reverses the order of the list, e.g. after filling it from a min-heap.
+	 */
+	public void reverse() {
+		for (int i = 0, j = mySize - 1; i < j; i++, j--) {
+			String term = myTerms[i];
+			myTerms[i] = myTerms[j];
+			myTerms[j] = term;
+			double weight = myWeights[i];
+			myWeights[i] = myWeights[j];
+			myWeights[j] = weight;
+		}
+	}
+
+	@Override
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+			private int myIndex = 0;
+
+			public boolean hasNext() {
+				return myIndex < mySize;
+			}
+
+			public String next() {
+				if (myIndex >= mySize)
+					throw new NoSuchElementException();
+				return myTerms[myIndex++];
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < mySize; i++) {
+			if (i > 0)
+				sb.append(", ");
+			sb.append(myTerms[i]).append(':').append(myWeights[i]);
+		}
+		return sb.append(']').toString();
+	}
+}
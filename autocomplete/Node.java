@@ -39,12 +39,22 @@ public class Node implements Comparable<Node> {
 	 */
 	double mySubtreeMaxWeight;
 
+	/**
+	 * Only non-null if the trie was built with precomputed top matches. Holds
+	 * the word Nodes with the largest weights in this Node's subtrie, in
+	 * descending weight order.
+	 */
+	Node[] myTopWords;
+
 	Map<Character, Node> children;
 	Node parent;
-	
-	//
-//	int[] LevenshteinDistanceRow;
-//	String prefix;
+
+	/**
+	 * Bit ch % 64 is set for the label ch of every child, and possibly for
+	 * labels of removed children, so a clear bit means there is no such
+	 * child without a lookup in children. Set by addChild.
+	 */
+	long myChildMask;
 
 	public Node(char character, Node parentNode, double subtreeMaximumWeight) {
 		myInfo = "" + character;
@@ -85,6 +95,22 @@ public class Node implements Comparable<Node> {
 		return children.get(ch);
 	}
 
+	/**
+	 * Adds child under its label, keeping myChildMask up to date.
+	 */
+	void addChild(Node child) {
+		char ch = child.myInfo.charAt(0);
+		children.put(ch, child);
+		myChildMask |= 1L << ch;
+	}
+
+	/**
+	 * Returns false if this Node certainly has no child labelled ch.
+	 */
+	boolean mayHaveChild(char ch) {
+		return (myChildMask & 1L << ch) != 0;
+	}
+
 	@Override
 	public String toString() {
 		return myInfo + " (" + myWeight + ")";
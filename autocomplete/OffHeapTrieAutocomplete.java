@@ -0,0 +1,459 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Trie implementation of Autocompletor whose nodes, edges, weights and words
+ * all live outside the Java heap, in direct ByteBuffers. A Node-based trie of
+ * tens of millions of nodes is tens of millions of objects (and as many
+ * HashMaps) that every full collection must trace; here the heap holds only
+ * a handful of buffer objects, so collections take the same time whatever
+ * the size of the dictionary, and queries only create the Strings they
+ * return.
+ *
+ * The layout is that of CompactTrieAutocomplete: nodes in breadth-first
+ * order, the children of node n being nodes firstChild[n] up to
+ * firstChild[n+1]-1 in label order, and the same pruned best-first search,
+ * so results are the same as TrieAutocomplete for the same terms and
+ * weights. The trie is built on the heap as a CompactTrieAutocomplete and
+ * then copied out, so building needs the heap that one takes. The words are
+ * stored as one char buffer with an offset per word.
+ *
+ * close frees the buffers' memory at once, through the buffer cleaner that
+ * sun.misc.Unsafe.invokeCleaner (module jdk.unsupported) runs, rather than
+ * whenever a collection finds them; on a JVM without it, the memory is left
+ * for the collector as usual. Each query counts itself in one of several
+ * reader counts, picked by thread and padded onto separate cache lines, so
+ * concurrent queries do not all write the same shared word. close marks the
+ * trie closed and waits for every count to drain before freeing anything:
+ * queries already running finish normally, and a query that races with
+ * close, or starts after it, throws IllegalStateException instead of
+ * reading freed memory. Each buffer is limited to 2GB, e.g. 268M nodes.
+ *
+ * Run main with a term file to compare full-collection pauses and query
+ * latency under load against TrieAutocomplete.
+ *
+ */
+public class OffHeapTrieAutocomplete implements Autocompletor, Closeable {
+
+	/**
+	 * sun.misc.Unsafe.invokeCleaner and the Unsafe instance, or null if the
+	 * JVM does not have them
+	 */
+	private static final Method ourInvokeCleaner;
+	private static final Object ourUnsafe;
+
+	static {
+		Method invokeCleaner = null;
+		Object unsafe = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			unsafe = null;
+			invokeCleaner = null;
+		}
+		ourInvokeCleaner = invokeCleaner;
+		ourUnsafe = unsafe;
+	}
+
+	private final int myNodeCount;
+	private final CharBuffer myLabels;
+	private final IntBuffer myFirstChild;
+	private final IntBuffer myWordIndex;
+	private final DoubleBuffer mySubtreeMaxWeight;
+	private final DoubleBuffer myWordWeights;
+	private final IntBuffer myWordOffsets;
+	private final CharBuffer myWordChars;
+
+	/**
+	 * The direct buffers the views above are over, which close frees
+	 */
+	private final ByteBuffer[] myBuffers = new ByteBuffer[7];
+
+	/**
+	 * Number of reader counts, a power of two, and the spacing between them
+	 * in myReaders, 128 bytes, so that no two share a cache line
+	 */
+	private static final int STRIPES = Integer.highestOneBit(2 * Runtime.getRuntime().availableProcessors() - 1) * 2;
+	private static final int PAD = 16;
+
+	/**
+	 * myReaders.get(i * PAD) is the number of running queries counted in
+	 * stripe i
+	 */
+	private final AtomicLongArray myReaders = new AtomicLongArray(STRIPES * PAD);
+	private volatile boolean isClosed;
+
+	/**
+	 * Constructor method for OffHeapTrieAutocomplete. If a word appears more
+	 * than once, its last weight is used, as in TrieAutocomplete.
+	 *
+	 * @param terms
+	 *            - The words we will autocomplete from
+	 * @param weights
+	 *            - Their weights, such that terms[i] has weight weights[i].
+	 * @throws NullPointerException
+	 *             if either argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different lengths, or a weight is
+	 *             negative
+	 */
+	public OffHeapTrieAutocomplete(String[] terms, double[] weights) {
+		CompactTrieAutocomplete trie = new CompactTrieAutocomplete(terms, weights);
+		myNodeCount = trie.myNodeCount;
+		myLabels = allocate(0, 2L * myNodeCount).asCharBuffer().put(trie.myLabels);
+		myFirstChild = allocate(1, 4L * (myNodeCount + 1)).asIntBuffer().put(trie.myFirstChild);
+		myWordIndex = allocate(2, 4L * myNodeCount).asIntBuffer().put(trie.myWordIndex);
+		mySubtreeMaxWeight = allocate(3, 8L * myNodeCount).asDoubleBuffer().put(trie.mySubtreeMaxWeight);
+		myWordWeights = allocate(4, 8L * trie.myWords.length).asDoubleBuffer().put(trie.myWordWeights);
+		long chars = 0;
+		for (String word : trie.myWords)
+			chars += word.length();
+		myWordOffsets = allocate(5, 4L * (trie.myWords.length + 1)).asIntBuffer();
+		myWordChars = allocate(6, 2 * chars).asCharBuffer();
+		for (String word : trie.myWords) {
+			myWordOffsets.put(myWordChars.position());
+			myWordChars.put(word);
+		}
+		myWordOffsets.put(myWordChars.position());
+	}
+
+	/**
+	 * Allocates direct buffer i of myBuffers
+	 */
+	private ByteBuffer allocate(int i, long bytes) {
+		if (bytes > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Trie too large for a 2GB buffer");
+		myBuffers[i] = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+		return myBuffers[i];
+	}
+
+	/**
+	 * Frees the buffers, after waiting for running queries; queries that race
+	 * with close or start after it throw IllegalStateException. Closing again
+	 * does nothing.
+	 */
+	public void close() {
+		synchronized (myReaders) {
+			if (isClosed)
+				return;
+			isClosed = true;
+		}
+		// a query that counted itself before seeing isClosed is still running
+		for (int i = 0; i < STRIPES; i++) {
+			while (myReaders.get(i * PAD) != 0)
+				Thread.onSpinWait();
+		}
+		if (ourInvokeCleaner == null)
+			return;
+		for (ByteBuffer buffer : myBuffers) {
+			try {
+				ourInvokeCleaner.invoke(ourUnsafe, buffer);
+			} catch (ReflectiveOperationException e) {
+				// left for the collector to free
+			}
+		}
+	}
+
+	/**
+	 * Counts a query as running and returns the index of its count in
+	 * myReaders, which the caller must pass to exit. The count is taken
+	 * before isClosed is read and close sets isClosed before reading the
+	 * counts, so either the query sees the trie closed or close waits for it.
+	 *
+	 * @throws IllegalStateException
+	 *             if the trie has been or is being closed
+	 */
+	private int enter() {
+		int h = System.identityHashCode(Thread.currentThread()) * 0x9E3779B9;
+		int stripe = (h >>> 16 & STRIPES - 1) * PAD;
+		myReaders.getAndIncrement(stripe);
+		if (isClosed) {
+			myReaders.getAndDecrement(stripe);
+			throw new IllegalStateException("trie is closed");
+		}
+		return stripe;
+	}
+
+	private void exit(int stripe) {
+		myReaders.getAndDecrement(stripe);
+	}
+
+	private String wordAt(int word) {
+		int start = myWordOffsets.get(word);
+		char[] chars = new char[myWordOffsets.get(word + 1) - start];
+		myWordChars.get(start, chars);
+		return new String(chars);
+	}
+
+	/**
+	 * Returns the child of node labelled ch, or -1 if there is none.
+	 */
+	private int getChild(int node, char ch) {
+		int low = myFirstChild.get(node);
+		int high = myFirstChild.get(node + 1) - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			char label = myLabels.get(middle);
+			if (label < ch) {
+				low = middle + 1;
+			} else if (label > ch) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the node reached by following prefix from the root, or -1 if
+	 * no word starts with prefix.
+	 */
+	private int findNode(String prefix) {
+		int node = 0;
+		for (int i = 0; i < prefix.length() && node >= 0; i++) {
+			node = getChild(node, prefix.charAt(i));
+		}
+		return node;
+	}
+
+	/**
+	 * Required by the Autocompletor interface. Returns the k words with the
+	 * largest weight which start with prefix, in descending weight order.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 * @throws IllegalStateException
+	 *             if the trie has been or is being closed
+	 */
+	public Iterable<String> topMatches(String prefix, int k) {
+		return weightedTopMatches(prefix, k);
+	}
+
+	/**
+	 * Returns the same matches as topMatches, with their weights.
+	 */
+	@Override
+	public MatchList weightedTopMatches(String prefix, int k) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal value of k:" + k);
+		MatchList ret = new MatchList(Math.min(k, 16));
+		int stripe = enter();
+		try {
+			matches(findNode(prefix), k, ret);
+		} finally {
+			exit(stripe);
+		}
+		return ret;
+	}
+
+	/**
+	 * Adds the k heaviest words under node to ret, heaviest first
+	 */
+	private void matches(int node, int k, MatchList ret) {
+		if (k == 0 || node < 0)
+			return;
+		IndexHeap nodes = new IndexHeap(16, true);
+		IndexHeap best = new IndexHeap(k, false);
+		nodes.add(node, mySubtreeMaxWeight.get(node));
+		while (!nodes.isEmpty()) {
+			if (best.size() == k && nodes.peekKey() <= best.peekKey())
+				break;
+			node = nodes.remove();
+			int word = myWordIndex.get(node);
+			if (word >= 0) {
+				double weight = myWordWeights.get(word);
+				if (best.size() < k) {
+					best.add(word, weight);
+				} else if (weight > best.peekKey()) {
+					best.remove();
+					best.add(word, weight);
+				}
+			}
+			int end = myFirstChild.get(node + 1);
+			for (int c = myFirstChild.get(node); c < end; c++) {
+				nodes.add(c, mySubtreeMaxWeight.get(c));
+			}
+		}
+		while (!best.isEmpty()) {
+			int word = best.remove();
+			ret.add(wordAt(word), myWordWeights.get(word));
+		}
+		ret.reverse();
+	}
+
+	/**
+	 * Given a prefix, returns the largest-weight word starting with that
+	 * prefix, or an empty string if none exists. Follows the child whose
+	 * subtree max weight equals the current node's until reaching the word
+	 * that carries it.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 * @throws IllegalStateException
+	 *             if the trie has been or is being closed
+	 */
+	public String topMatch(String prefix) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		int stripe = enter();
+		try {
+			return topMatch(findNode(prefix));
+		} finally {
+			exit(stripe);
+		}
+	}
+
+	private String topMatch(int node) {
+		while (node >= 0) {
+			double max = mySubtreeMaxWeight.get(node);
+			int word = myWordIndex.get(node);
+			if (word >= 0 && myWordWeights.get(word) == max)
+				return wordAt(word);
+			int next = -1;
+			int end = myFirstChild.get(node + 1);
+			for (int c = myFirstChild.get(node); c < end; c++) {
+				if (mySubtreeMaxWeight.get(c) == max) {
+					next = c;
+					break;
+				}
+			}
+			node = next;
+		}
+		return "";
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary,
+	 * return 0.0
+	 *
+	 * @throws IllegalStateException
+	 *             if the trie has been or is being closed
+	 */
+	public double weightOf(String term) {
+		int stripe = enter();
+		try {
+			int node = findNode(term);
+			if (node < 0 || myWordIndex.get(node) < 0)
+				return 0.0;
+			return myWordWeights.get(myWordIndex.get(node));
+		} finally {
+			exit(stripe);
+		}
+	}
+
+	public int nodeCount() {
+		return myNodeCount;
+	}
+
+	/**
+	 * Returns the number of bytes of off-heap memory held, words included.
+	 */
+	public long sizeInBytes() {
+		int stripe = enter();
+		try {
+			long bytes = 0;
+			for (ByteBuffer buffer : myBuffers)
+				bytes += buffer.capacity();
+			return bytes;
+		} finally {
+			exit(stripe);
+		}
+	}
+
+	private static volatile boolean ourRunning;
+
+	/**
+	 * For TrieAutocomplete and then OffHeapTrieAutocomplete on the same
+	 * terms, times a few full collections with the dictionary live, and then
+	 * runs a query thread for the given number of seconds next to a thread
+	 * that allocates short-lived garbage, printing the collections that ran
+	 * and query latency percentiles.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("usage: java OffHeapTrieAutocomplete <termfile> [seconds]");
+			System.exit(1);
+		}
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		TermFileLoader data = new TermFileLoader(new File(args[0]), true);
+		System.out.println(data);
+		String[] terms = data.getTerms();
+		double[] weights = data.getWeights();
+		System.out.printf("%-24s %12s %8s %10s %10s %10s %10s%n", "", "full gc(ms)", "gcs", "gc(ms)", "p50(us)",
+				"p99.9(us)", "max(us)");
+		measure(new TrieAutocomplete(terms, weights), terms, seconds);
+		measure(new OffHeapTrieAutocomplete(terms, weights), terms, seconds);
+	}
+
+	private static void measure(Autocompletor auto, String[] terms, int seconds) throws InterruptedException {
+		long fullGc = Long.MAX_VALUE;
+		for (int i = 0; i < 3; i++) {
+			long start = System.nanoTime();
+			System.gc();
+			fullGc = Math.min(fullGc, System.nanoTime() - start);
+		}
+		long gcsBefore = 0, gcMillisBefore = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gcsBefore += gc.getCollectionCount();
+			gcMillisBefore += gc.getCollectionTime();
+		}
+		long[] latencies = new long[1 << 22];
+		int[] count = new int[1];
+		ourRunning = true;
+		Thread queries = new Thread(() -> {
+			Random random = new Random(1234);
+			while (ourRunning && count[0] < latencies.length) {
+				String term = terms[random.nextInt(terms.length)];
+				String prefix = term.substring(0, Math.min(1 + random.nextInt(3), term.length()));
+				long start = System.nanoTime();
+				auto.topMatches(prefix, 10);
+				latencies[count[0]++] = System.nanoTime() - start;
+			}
+		});
+		Thread garbage = new Thread(() -> {
+			Object[] live = new Object[4096];
+			Random random = new Random(5678);
+			while (ourRunning)
+				live[random.nextInt(live.length)] = new long[16 + random.nextInt(512)];
+		});
+		queries.start();
+		garbage.start();
+		Thread.sleep(seconds * 1000L);
+		ourRunning = false;
+		queries.join();
+		garbage.join();
+		long gcs = -gcsBefore, gcMillis = -gcMillisBefore;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gcs += gc.getCollectionCount();
+			gcMillis += gc.getCollectionTime();
+		}
+		long[] sorted = Arrays.copyOf(latencies, count[0]);
+		Arrays.sort(sorted);
+		System.out.printf("%-24s %12.1f %8d %10d %10.1f %10.1f %10.1f%n", auto.getClass().getName(), fullGc / 1E6,
+				gcs, gcMillis, AutocompletorBenchmark.percentile(sorted, 50) / 1E3,
+				AutocompletorBenchmark.percentile(sorted, 99.9) / 1E3,
+				sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1E3);
+	}
+}
@@ -0,0 +1,90 @@
+import java.util.Comparator;
+
+/**
+ * Node in a radix (Patricia) trie. Unlike Node, the edge into a RadixNode is
+ * labelled with a whole String: a chain of single-child trie nodes that end
+ * no word is merged into one RadixNode. Children are kept in an array sorted
+ * by the first character of their label.
+ *
+ */
+public class RadixNode implements Comparable<RadixNode> {
+	/**
+	 * The characters on the edge from the parent to this node (empty for the
+	 * root)
+	 */
+	String myLabel;
+
+	/**
+	 * Whether or not a word ends at this node
+	 */
+	boolean isWord;
+
+	/**
+	 * Only non-null if isWord is true. Holds the entire word ending here.
+	 */
+	String myWord;
+
+	/**
+	 * Only positive/interpretable if isWord is true. Represents the weight of
+	 * myWord.
+	 */
+	double myWeight = -1;
+
+	/**
+	 * The maximum weight of any word in this node's subtrie, including the
+	 * node itself.
+	 */
+	double mySubtreeMaxWeight;
+
+	/**
+	 * myFirstChars[i] is the first character of children[i].myLabel, in
+	 * increasing order
+	 */
+	char[] myFirstChars;
+	RadixNode[] children;
+
+	public RadixNode(String label) {
+		myLabel = label;
+	}
+
+	/**
+	 * Returns the child whose label starts with ch, or null if there is none.
+	 */
+	RadixNode getChild(char ch) {
+		int low = 0;
+		int high = myFirstChars.length - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (myFirstChars[middle] < ch) {
+				low = middle + 1;
+			} else if (myFirstChars[middle] > ch) {
+				high = middle - 1;
+			} else {
+				return children[middle];
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return myLabel + " (" + myWeight + ")";
+	}
+
+	@Override
+	public int compareTo(RadixNode o) {
+		// Sort in weight ascending
+		return Double.compare(myWeight, o.myWeight);
+	}
+
+	/*
+	 * In reverse subtreeMaxWeight order to make the PriorityQueue (a min-heap)
+	 * act as a max heap.
+	 */
+	public static class ReverseSubtreeMaxWeightComparator implements Comparator<RadixNode> {
+		@Override
+		public int compare(RadixNode o1, RadixNode o2) {
+			return Double.compare(o2.mySubtreeMaxWeight, o1.mySubtreeMaxWeight);
+		}
+	}
+}
@@ -0,0 +1,185 @@
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+
+/**
+ * Radix (path-compressed) trie implementation of Autocompletor. Every chain
+ * of single-child, non-word nodes that TrieAutocomplete would create one
+ * character at a time is a single RadixNode here, so long words and shared
+ * long prefixes (URLs, titles) cost one node per branch point instead of one
+ * per character. Each node keeps mySubtreeMaxWeight, and topMatches uses the
+ * same pruned best-first search as TrieAutocomplete.
+ *
+ */
+public class RadixTrieAutocomplete implements Autocompletor {
+
+	/**
+	 * Root of entire trie
+	 */
+	protected RadixNode myRoot;
+
+	/**
+	 * Constructor method for RadixTrieAutocomplete. If a word appears more
+	 * than once, its last weight is used, as in TrieAutocomplete.
+	 *
+	 * @param terms
+	 *            - The words we will autocomplete from
+	 * @param weights
+	 *            - Their weights, such that terms[i] has weight weights[i].
+	 * @throws NullPointerException
+	 *             if either argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different lengths, or a weight is
+	 *             negative
+	 */
+	public RadixTrieAutocomplete(String[] terms, double[] weights) {
+		Term[] sorted = Term.sortedDistinct(terms, weights);
+		myRoot = build(sorted, 0, sorted.length, 0, "");
+	}
+
+	/**
+	 * Builds the subtrie for sorted[lo..hi-1], all of which share their first
+	 * depth characters. A word of exactly that length comes first and ends at
+	 * the new node; the rest are grouped by their next character, and each
+	 * group's edge label is the longest prefix common to the group, which for
+	 * sorted words is the common prefix of its first and last word.
+	 */
+	private RadixNode build(Term[] sorted, int lo, int hi, int depth, String label) {
+		RadixNode node = new RadixNode(label);
+		if (lo < hi && sorted[lo].getWord().length() == depth) {
+			node.isWord = true;
+			node.myWord = sorted[lo].getWord();
+			node.myWeight = sorted[lo].getWeight();
+			node.mySubtreeMaxWeight = node.myWeight;
+			lo++;
+		}
+		ArrayList<RadixNode> children = new ArrayList<RadixNode>();
+		while (lo < hi) {
+			String first = sorted[lo].getWord();
+			char ch = first.charAt(depth);
+			int stop = lo + 1;
+			while (stop < hi && sorted[stop].getWord().charAt(depth) == ch)
+				stop++;
+			String last = sorted[stop - 1].getWord();
+			int end = depth + 1;
+			while (end < first.length() && end < last.length() && first.charAt(end) == last.charAt(end))
+				end++;
+			RadixNode child = build(sorted, lo, stop, end, first.substring(depth, end));
+			node.mySubtreeMaxWeight = Math.max(node.mySubtreeMaxWeight, child.mySubtreeMaxWeight);
+			children.add(child);
+			lo = stop;
+		}
+		node.children = children.toArray(new RadixNode[children.size()]);
+		node.myFirstChars = new char[node.children.length];
+		for (int i = 0; i < node.children.length; i++) {
+			node.myFirstChars[i] = node.children[i].myLabel.charAt(0);
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the node whose subtrie holds exactly the words starting with
+	 * prefix, or null if there are none. The prefix may end part way along
+	 * the returned node's label.
+	 */
+	protected RadixNode findNode(String prefix) {
+		RadixNode curr = myRoot;
+		int i = 0;
+		while (i < prefix.length()) {
+			curr = curr.getChild(prefix.charAt(i));
+			if (curr == null)
+				return null;
+			int len = Math.min(curr.myLabel.length(), prefix.length() - i);
+			if (!prefix.regionMatches(i, curr.myLabel, 0, len))
+				return null;
+			i += curr.myLabel.length();
+		}
+		return curr;
+	}
+
+	/**
+	 * Required by the Autocompletor interface. Returns the k words with the
+	 * largest weight which start with prefix, in descending weight order.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public Iterable<String> topMatches(String prefix, int k) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal value of k:" + k);
+		LinkedList<String> ret = new LinkedList<String>();
+		RadixNode curr = findNode(prefix);
+		if (k == 0 || curr == null)
+			return ret;
+		PriorityQueue<RadixNode> nodes = new PriorityQueue<RadixNode>(16,
+				new RadixNode.ReverseSubtreeMaxWeightComparator());
+		PriorityQueue<RadixNode> best = new PriorityQueue<RadixNode>(k);
+		nodes.add(curr);
+		while (!nodes.isEmpty()) {
+			if (best.size() == k && nodes.peek().mySubtreeMaxWeight <= best.peek().myWeight)
+				break;
+			curr = nodes.remove();
+			if (curr.isWord) {
+				if (best.size() < k) {
+					best.add(curr);
+				} else if (curr.myWeight > best.peek().myWeight) {
+					best.remove();
+					best.add(curr);
+				}
+			}
+			for (RadixNode child : curr.children) {
+				nodes.add(child);
+			}
+		}
+		while (!best.isEmpty()) {
+			ret.addFirst(best.remove().myWord);
+		}
+		return ret;
+	}
+
+	/**
+	 * Given a prefix, returns the largest-weight word starting with that
+	 * prefix, or an empty string if none exists.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	public String topMatch(String prefix) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		RadixNode curr = findNode(prefix);
+		while (curr != null) {
+			if (curr.isWord && curr.myWeight == curr.mySubtreeMaxWeight)
+				return curr.myWord;
+			RadixNode next = null;
+			for (RadixNode child : curr.children) {
+				if (child.mySubtreeMaxWeight == curr.mySubtreeMaxWeight) {
+					next = child;
+					break;
+				}
+			}
+			curr = next;
+		}
+		return "";
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary,
+	 * return 0.0
+	 */
+	public double weightOf(String term) {
+		RadixNode curr = myRoot;
+		int i = 0;
+		while (i < term.length()) {
+			curr = curr.getChild(term.charAt(i));
+			if (curr == null || !term.startsWith(curr.myLabel, i))
+				return 0.0;
+			i += curr.myLabel.length();
+		}
+		return curr.isWord ? curr.myWeight : 0.0;
+	}
+}
@@ -0,0 +1,93 @@
+/**
+ * Answers range-maximum queries over a fixed array of weights: argMax(lo, hi)
+ * returns the index of the largest value in values[lo..hi]. The array is cut
+ * into blocks of BLOCK_SIZE values and a sparse table is built over the
+ * block maxima, so a query scans at most two partial blocks and looks up two
+ * table entries, whatever the size of the range. The table takes about
+ * (n / BLOCK_SIZE) * log2(n / BLOCK_SIZE) ints.
+ *
+ */
+public class RangeMaxIndex {
+
+	private static final int LOG_BLOCK_SIZE = 5;
+	public static final int BLOCK_SIZE = 1 << LOG_BLOCK_SIZE;
+
+	private final double[] myValues;
+
+	/**
+	 * myTable[j][b] is the index of the largest value in blocks b up to
+	 * b + 2^j - 1
+	 */
+	private final int[][] myTable;
+
+	/**
+	 * @param values
+	 *            - The values to answer queries over. The array is not copied
+	 *            and must not change afterwards.
+	 */
+	public RangeMaxIndex(double[] values) {
+		myValues = values;
+		int blocks = (values.length + BLOCK_SIZE - 1) >>> LOG_BLOCK_SIZE;
+		int levels = 1;
+		while ((1 << levels) <= blocks)
+			levels++;
+		myTable = new int[levels][];
+		myTable[0] = new int[blocks];
+		for (int b = 0; b < blocks; b++) {
+			int start = b << LOG_BLOCK_SIZE;
+			myTable[0][b] = scan(start, Math.min(start + BLOCK_SIZE, values.length) - 1, start);
+		}
+		for (int j = 1; j < levels; j++) {
+			int half = 1 << (j - 1);
+			myTable[j] = new int[blocks - (1 << j) + 1];
+			for (int b = 0; b < myTable[j].length; b++) {
+				myTable[j][b] = larger(myTable[j - 1][b], myTable[j - 1][b + half]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the largest value in values[lo..hi], inclusive.
+	 * Among equal values the smallest index is returned.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the range is empty
+	 */
+	public int argMax(int lo, int hi) {
+		if (lo > hi)
+			throw new IllegalArgumentException("Empty range " + lo + ".." + hi);
+		int firstBlock = lo >>> LOG_BLOCK_SIZE;
+		int lastBlock = hi >>> LOG_BLOCK_SIZE;
+		if (firstBlock == lastBlock)
+			return scan(lo, hi, lo);
+		int best = scan(lo, ((firstBlock + 1) << LOG_BLOCK_SIZE) - 1, lo);
+		if (lastBlock - firstBlock > 1) {
+			int from = firstBlock + 1;
+			int count = lastBlock - from;
+			int j = 31 - Integer.numberOfLeadingZeros(count);
+			best = larger(best, larger(myTable[j][from], myTable[j][lastBlock - (1 << j)]));
+		}
+		return larger(best, scan(lastBlock << LOG_BLOCK_SIZE, hi, lastBlock << LOG_BLOCK_SIZE));
+	}
+
+	/**
+	 * Returns the number of values indexed.
+	 */
+	public int size() {
+		return myValues.length;
+	}
+
+	private int scan(int lo, int hi, int best) {
+		for (int i = lo; i <= hi; i++) {
+			if (myValues[i] > myValues[best])
+				best = i;
+		}
+		return best;
+	}
+
+	private int larger(int i, int j) {
+		if (myValues[j] > myValues[i] || (myValues[j] == myValues[i] && j < i))
+			return j;
+		return i;
+	}
+}
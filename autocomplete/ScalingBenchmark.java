@@ -0,0 +1,113 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures how the autocompletors scale with dictionary size, on
+ * dictionaries written by DictionaryGenerator. For each size, the term file
+ * is generated (or reused, since generation is deterministic), loaded, and
+ * every implementation is built from it and queried with random prefixes
+ * of one to four characters of its terms. One CSV line is printed per
+ * implementation and size, with the build time, the heap the
+ * implementation holds beyond the loaded term and weight arrays, and query
+ * latency percentiles, ready for plotting against size.
+ *
+ * BruteAutocomplete is run in input order and in weight order (as
+ * "BruteAutocomplete-weightorder"), but only on dictionaries of up to
+ * 100,000 terms, since a query can scan every term. The heap column of
+ * OffHeapTrieAutocomplete leaves out its direct buffers.
+ *
+ * Run with plenty of heap, e.g. java -Xmx16g ScalingBenchmark /tmp/dicts
+ * 100000 1000000 10000000.
+ *
+ */
+public class ScalingBenchmark {
+
+	private static final int QUERIES = 100000;
+	private static final int BRUTE_LIMIT = 100000;
+
+	/**
+	 * Builds the Autocompletor under test
+	 */
+	private interface Factory {
+		Autocompletor build(String[] terms, double[] weights);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: java ScalingBenchmark <directory> <size>... [-seed n] [-k n]");
+			System.exit(1);
+		}
+		File dir = new File(args[0]);
+		long seed = 1234;
+		int k = 10;
+		ArrayList<Integer> sizes = new ArrayList<Integer>();
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("-seed"))
+				seed = Long.parseLong(args[++i]);
+			else if (args[i].equals("-k"))
+				k = Integer.parseInt(args[++i]);
+			else
+				sizes.add(Integer.parseInt(args[i]));
+		}
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("Cannot create " + dir);
+
+		String[] names = { "BruteAutocomplete", "BruteAutocomplete-weightorder", "BinarySearchAutocomplete",
+				"TrieAutocomplete", "TernarySearchTreeAutocomplete", "FSTAutocomplete", "OffHeapTrieAutocomplete" };
+		Factory[] factories = { BruteAutocomplete::new, (t, w) -> new BruteAutocomplete(t, w, true),
+				BinarySearchAutocomplete::new, TrieAutocomplete::new, TernarySearchTreeAutocomplete::new,
+				FSTAutocomplete::new, OffHeapTrieAutocomplete::new };
+		System.out.println("implementation,terms,build_ms,heap_mb,p50_us,p99_us,p999_us");
+		for (int size : sizes) {
+			File file = new File(dir, "terms-" + size + "-" + seed + ".txt");
+			if (!file.exists())
+				new DictionaryGenerator(seed).write(file, size);
+			TermFileLoader data = new TermFileLoader(file, false);
+			String[] terms = data.getTerms();
+			double[] weights = data.getWeights();
+			String[] prefixes = new String[QUERIES];
+			Random random = new Random(seed);
+			for (int i = 0; i < prefixes.length; i++) {
+				String term = terms[random.nextInt(terms.length)];
+				prefixes[i] = term.substring(0, Math.min(1 + random.nextInt(4), term.length()));
+			}
+			for (int f = 0; f < factories.length; f++) {
+				if (names[f].startsWith("Brute") && size > BRUTE_LIMIT)
+					continue;
+				long before = AutocompletorBenchmark.usedMemory();
+				long start = System.nanoTime();
+				Autocompletor auto = factories[f].build(terms, weights);
+				double buildMillis = (System.nanoTime() - start) / 1E6;
+				double heapMb = (AutocompletorBenchmark.usedMemory() - before) / 1E6;
+				long[] latencies = measure(auto, prefixes, k);
+				System.out.printf("%s,%d,%.1f,%.1f,%.2f,%.2f,%.2f%n", names[f], size, buildMillis, heapMb,
+						AutocompletorBenchmark.percentile(latencies, 50) / 1E3,
+						AutocompletorBenchmark.percentile(latencies, 99) / 1E3,
+						AutocompletorBenchmark.percentile(latencies, 99.9) / 1E3);
+				// so the next implementation's heap is not measured with this
+				// one still reachable
+				auto = null;
+			}
+		}
+	}
+
+	/**
+	 * Runs the queries once untimed, to warm up, then once timing each, and
+	 * returns the sorted latencies in nanoseconds.
+	 */
+	private static long[] measure(Autocompletor auto, String[] prefixes, int k) {
+		for (String prefix : prefixes)
+			auto.topMatches(prefix, k);
+		long[] latencies = new long[prefixes.length];
+		for (int i = 0; i < prefixes.length; i++) {
+			long start = System.nanoTime();
+			auto.topMatches(prefixes[i], k);
+			latencies[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(latencies);
+		return latencies;
+	}
+}
@@ -0,0 +1,266 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Autocompletor that splits the dictionary into shards, each its own
+ * Autocompletor, and answers every query by asking all shards at once on a
+ * ForkJoinPool and merging their answers. Terms are assigned to shards by
+ * hash, so the terms under any prefix, however wide, are spread evenly and
+ * a query for "" or "s" is divided between the cores rather than run on
+ * one. The price is a task per shard for every query, which costs more than
+ * it saves for narrow prefixes.
+ *
+ * Each shard returns its own top k, and the lists are merged with a k-way
+ * heap keyed on the weight at the head of each list, so the result is the
+ * same as that of one Autocompletor over all the terms. A repeated word
+ * always lands in the same shard, where its last weight wins as usual.
+ * Shards that get no terms are not built, so the factory never sees an
+ * empty dictionary.
+ *
+ * The shards must support concurrent queries, as SnapshotAutocomplete
+ * describes. Run main with a term file to report query latency against the
+ * number of shards.
+ *
+ */
+public class ShardedAutocomplete implements Autocompletor {
+
+	/**
+	 * Builds the Autocompletor for one shard
+	 */
+	public interface Factory {
+		Autocompletor build(String[] terms, double[] weights);
+	}
+
+	/**
+	 * The shards, or null for shards that got no terms
+	 */
+	private final Autocompletor[] myShards;
+	private final ForkJoinPool myPool;
+
+	/**
+	 * Splits terms into the given number of shards, builds each with
+	 * factory, and queries them on pool.
+	 *
+	 * @throws NullPointerException
+	 *             if an argument or a term is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different lengths or shards is not
+	 *             positive
+	 */
+	public ShardedAutocomplete(String[] terms, double[] weights, int shards, Factory factory, ForkJoinPool pool) {
+		if (terms == null || weights == null || factory == null || pool == null)
+			throw new NullPointerException("One or more arguments null");
+		if (terms.length != weights.length)
+			throw new IllegalArgumentException("terms and weights are not the same length");
+		if (shards <= 0)
+			throw new IllegalArgumentException("Illegal number of shards:" + shards);
+		int[] counts = new int[shards];
+		int[] shardOf = new int[terms.length];
+		for (int i = 0; i < terms.length; i++) {
+			shardOf[i] = shardOf(terms[i], shards);
+			counts[shardOf[i]]++;
+		}
+		String[][] shardTerms = new String[shards][];
+		double[][] shardWeights = new double[shards][];
+		for (int s = 0; s < shards; s++) {
+			shardTerms[s] = new String[counts[s]];
+			shardWeights[s] = new double[counts[s]];
+			counts[s] = 0;
+		}
+		for (int i = 0; i < terms.length; i++) {
+			int s = shardOf[i];
+			shardTerms[s][counts[s]] = terms[i];
+			shardWeights[s][counts[s]++] = weights[i];
+		}
+		myShards = new Autocompletor[shards];
+		ArrayList<ForkJoinTask<?>> builds = new ArrayList<ForkJoinTask<?>>();
+		for (int s = 0; s < shards; s++) {
+			int shard = s;
+			if (shardTerms[s].length == 0)
+				continue;
+			builds.add(pool.submit(() -> {
+				myShards[shard] = factory.build(shardTerms[shard], shardWeights[shard]);
+			}));
+		}
+		for (ForkJoinTask<?> build : builds)
+			build.join();
+		myPool = pool;
+	}
+
+	private static int shardOf(String term, int shards) {
+		int h = term.hashCode() * 0x9E3779B9;
+		return Math.floorMod(h ^ (h >>> 16), shards);
+	}
+
+	public int getShardCount() {
+		return myShards.length;
+	}
+
+	/**
+	 * Required by the Autocompletor interface. Returns the k words with the
+	 * largest weight which start with prefix, in descending weight order.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public Iterable<String> topMatches(String prefix, int k) {
+		return weightedTopMatches(prefix, k);
+	}
+
+	/**
+	 * Returns the same matches as topMatches, with their weights.
+	 */
+	@Override
+	public MatchList weightedTopMatches(String prefix, int k) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal value of k:" + k);
+		MatchList[] lists = scatter(prefix, k);
+		MatchList ret = new MatchList(Math.min(k, 16));
+		// heads[s] is the next match of shard s to merge
+		int[] heads = new int[lists.length];
+		IndexHeap heap = new IndexHeap(lists.length, true);
+		for (int s = 0; s < lists.length; s++) {
+			if (!lists[s].isEmpty())
+				heap.add(s, lists[s].getWeight(0));
+		}
+		while (ret.size() < k && !heap.isEmpty()) {
+			int s = heap.remove();
+			ret.add(lists[s].getTerm(heads[s]), lists[s].getWeight(heads[s]));
+			if (++heads[s] < lists[s].size())
+				heap.add(s, lists[s].getWeight(heads[s]));
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns every shard's weightedTopMatches for prefix and k. Every shard
+	 * but the first is asked on the pool; the first is asked on the calling
+	 * thread meanwhile.
+	 */
+	private MatchList[] scatter(String prefix, int k) {
+		MatchList[] lists = new MatchList[myShards.length];
+		Arrays.fill(lists, new MatchList(0));
+		if (k == 0)
+			return lists;
+		ArrayList<ForkJoinTask<MatchList>> tasks = new ArrayList<ForkJoinTask<MatchList>>();
+		// shards[i] is the shard tasks.get(i) asks
+		int[] shards = new int[myShards.length];
+		int first = -1;
+		for (int s = 0; s < myShards.length; s++) {
+			Autocompletor shard = myShards[s];
+			if (shard == null)
+				continue;
+			if (first < 0) {
+				first = s;
+			} else {
+				shards[tasks.size()] = s;
+				tasks.add(myPool.submit(() -> shard.weightedTopMatches(prefix, k)));
+			}
+		}
+		if (first >= 0)
+			lists[first] = myShards[first].weightedTopMatches(prefix, k);
+		for (int i = 0; i < tasks.size(); i++)
+			lists[shards[i]] = tasks.get(i).join();
+		return lists;
+	}
+
+	/**
+	 * Given a prefix, returns the largest-weight word starting with that
+	 * prefix, or an empty string if none exists.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	public String topMatch(String prefix) {
+		MatchList top = weightedTopMatches(prefix, 1);
+		return top.isEmpty() ? "" : top.getTerm(0);
+	}
+
+	/**
+	 * Return the weight of a given term, from the one shard that can hold
+	 * it. If term is not in the dictionary, return 0.0
+	 */
+	public double weightOf(String term) {
+		Autocompletor shard = myShards[shardOf(term, myShards.length)];
+		return shard == null ? 0.0 : shard.weightOf(term);
+	}
+
+	/**
+	 * Builds ShardedAutocompletes of BinarySearchAutocomplete and
+	 * TrieAutocomplete with 1, 2, 4, ... shards, up to twice the number of
+	 * cores, and prints topMatches latency percentiles for wide prefixes
+	 * (empty or one character) and narrow ones (three characters), against
+	 * the unsharded implementation.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("usage: java ShardedAutocomplete <termfile>");
+			System.exit(1);
+		}
+		TermFileLoader data = new TermFileLoader(new File(args[0]), true);
+		System.out.println(data);
+		String[] terms = data.getTerms();
+		double[] weights = data.getWeights();
+		Random random = new Random(1234);
+		String[] wide = new String[2000];
+		String[] narrow = new String[20000];
+		for (int i = 0; i < wide.length; i++) {
+			String term = terms[random.nextInt(terms.length)];
+			wide[i] = i % 10 == 0 ? "" : term.substring(0, 1);
+		}
+		for (int i = 0; i < narrow.length; i++) {
+			String term = terms[random.nextInt(terms.length)];
+			narrow[i] = term.substring(0, Math.min(3, term.length()));
+		}
+		int cores = Runtime.getRuntime().availableProcessors();
+		ForkJoinPool pool = new ForkJoinPool(cores);
+		Factory[] factories = { BinarySearchAutocomplete::new, TrieAutocomplete::new };
+		String[] names = { "BinarySearchAutocomplete", "TrieAutocomplete" };
+		for (int f = 0; f < factories.length; f++) {
+			System.out.println(names[f] + ", k = 10, " + cores + " cores");
+			System.out.printf("%-10s %12s %12s %12s %12s%n", "shards", "wide p50", "wide p99", "narrow p50",
+					"narrow p99");
+			report("unsharded", factories[f].build(terms, weights), wide, narrow);
+			for (int shards = 1; shards <= 2 * cores; shards *= 2)
+				report("" + shards, new ShardedAutocomplete(terms, weights, shards, factories[f], pool), wide,
+						narrow);
+		}
+		pool.shutdown();
+	}
+
+	private static void report(String label, Autocompletor auto, String[] wide, String[] narrow) {
+		long[] wideNanos = time(auto, wide);
+		long[] narrowNanos = time(auto, narrow);
+		System.out.printf("%-10s %10.1fus %10.1fus %10.1fus %10.1fus%n", label,
+				AutocompletorBenchmark.percentile(wideNanos, 50) / 1E3,
+				AutocompletorBenchmark.percentile(wideNanos, 99) / 1E3,
+				AutocompletorBenchmark.percentile(narrowNanos, 50) / 1E3,
+				AutocompletorBenchmark.percentile(narrowNanos, 99) / 1E3);
+	}
+
+	/**
+	 * Runs the queries once to warm up and once timed, and returns the sorted
+	 * latencies
+	 */
+	private static long[] time(Autocompletor auto, String[] prefixes) {
+		for (String prefix : prefixes)
+			auto.topMatches(prefix, 10);
+		long[] nanos = new long[prefixes.length];
+		for (int i = 0; i < prefixes.length; i++) {
+			long start = System.nanoTime();
+			auto.topMatches(prefixes[i], 10);
+			nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+		return nanos;
+	}
+}
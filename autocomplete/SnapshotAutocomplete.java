@@ -0,0 +1,321 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Autocompletor that can be queried from many threads while its dictionary
+ * is replaced. Each dictionary is an Autocompletor snapshot that is never
+ * modified once published; the current snapshot is held in an
+ * AtomicReference, so a query only reads the reference and bumps a
+ * reference count, and never waits for a lock or for a reload.
+ *
+ * swap publishes a new snapshot at once, and reload builds one on a
+ * background thread with the Loader and then swaps it in. A retired
+ * snapshot stays usable by queries that started on it; once the last of
+ * them finishes, it is closed if it is Closeable (e.g. a
+ * MappedAutocomplete), and otherwise simply left to the garbage collector.
+ *
+ * The wrapped Autocompletors must support concurrent queries. Brute, binary
+ * search and trie autocompletors do as long as nothing modifies them.
+ *
+ * Run main with a term file to measure query latency under load while the
+ * dictionary is reloaded over and over.
+ *
+ */
+public class SnapshotAutocomplete implements Autocompletor, Closeable {
+
+	/**
+	 * Builds a new snapshot for reload
+	 */
+	public interface Loader {
+		Autocompletor load() throws IOException;
+	}
+
+	/**
+	 * A published Autocompletor and the number of users holding it. The
+	 * holder, SnapshotAutocomplete, counts as one user until the snapshot is
+	 * retired.
+	 */
+	private static class Snapshot {
+		final Autocompletor myAuto;
+		final AtomicInteger myUsers = new AtomicInteger(1);
+
+		Snapshot(Autocompletor auto) {
+			myAuto = auto;
+		}
+
+		/**
+		 * Adds a user, unless the snapshot has already been closed
+		 */
+		boolean tryAcquire() {
+			while (true) {
+				int users = myUsers.get();
+				if (users == 0)
+					return false;
+				if (myUsers.compareAndSet(users, users + 1))
+					return true;
+			}
+		}
+
+		void release() {
+			if (myUsers.decrementAndGet() == 0 && myAuto instanceof Closeable) {
+				try {
+					((Closeable) myAuto).close();
+				} catch (IOException e) {
+					System.err.println("Could not close retired snapshot: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	private final AtomicReference<Snapshot> myCurrent;
+	private final Loader myLoader;
+	private final ExecutorService myReloader;
+	private final AtomicInteger myGeneration = new AtomicInteger();
+	private final CopyOnWriteArrayList<Runnable> mySwapListeners = new CopyOnWriteArrayList<Runnable>();
+
+	/**
+	 * Creates a SnapshotAutocomplete serving initial, which can only be
+	 * replaced by swap.
+	 *
+	 * @throws NullPointerException
+	 *             if initial is null
+	 */
+	public SnapshotAutocomplete(Autocompletor initial) {
+		this(initial, null);
+	}
+
+	/**
+	 * Creates a SnapshotAutocomplete serving initial, whose reload method
+	 * builds a replacement with loader on a background thread.
+	 *
+	 * @throws NullPointerException
+	 *             if initial is null
+	 */
+	public SnapshotAutocomplete(Autocompletor initial, Loader loader) {
+		if (initial == null)
+			throw new NullPointerException("initial snapshot is null");
+		myCurrent = new AtomicReference<Snapshot>(new Snapshot(initial));
+		myLoader = loader;
+		myReloader = loader == null ? null : Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "autocomplete-reload");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Publishes next as the current snapshot. Queries already running finish
+	 * on the old snapshot, which is then retired.
+	 *
+	 * @throws NullPointerException
+	 *             if next is null
+	 * @throws IllegalStateException
+	 *             if this has been closed
+	 */
+	public void swap(Autocompletor next) {
+		if (next == null)
+			throw new NullPointerException("next snapshot is null");
+		Snapshot snapshot = new Snapshot(next);
+		Snapshot old;
+		do {
+			old = myCurrent.get();
+			if (old == null)
+				throw new IllegalStateException("closed");
+		} while (!myCurrent.compareAndSet(old, snapshot));
+		myGeneration.incrementAndGet();
+		for (Runnable listener : mySwapListeners)
+			listener.run();
+		old.release();
+	}
+
+	/**
+	 * Registers listener to be run after every swap, once the new snapshot is
+	 * published, e.g. CachingAutocomplete.invalidateAll for a cache in front
+	 * of this.
+	 */
+	public void addSwapListener(Runnable listener) {
+		if (listener == null)
+			throw new NullPointerException("listener is null");
+		mySwapListeners.add(listener);
+	}
+
+	/**
+	 * Starts building a new snapshot with the Loader on the background
+	 * thread, and swaps it in when it is ready. Reloads run one at a time, in
+	 * the order requested.
+	 *
+	 * @return a Future that completes once the new snapshot is published, or
+	 *         fails with the Loader's exception, leaving the current snapshot
+	 *         in place
+	 * @throws IllegalStateException
+	 *             if this was created without a Loader
+	 */
+	public Future<Autocompletor> reload() {
+		if (myReloader == null)
+			throw new IllegalStateException("no Loader to reload with");
+		return myReloader.submit(() -> {
+			Autocompletor next = myLoader.load();
+			swap(next);
+			return next;
+		});
+	}
+
+	/**
+	 * Returns the number of snapshots swapped in since construction.
+	 */
+	public int getGeneration() {
+		return myGeneration.get();
+	}
+
+	/**
+	 * Returns the current snapshot with a user added, so it cannot be closed
+	 * before the matching release.
+	 */
+	private Snapshot acquire() {
+		while (true) {
+			Snapshot snapshot = myCurrent.get();
+			if (snapshot == null)
+				throw new IllegalStateException("closed");
+			if (snapshot.tryAcquire())
+				return snapshot;
+			// retired and closed between the get and tryAcquire; the
+			// reference already holds its replacement
+		}
+	}
+
+	/**
+	 * Stops the reload thread and retires the current snapshot. Queries
+	 * running on it finish normally; later queries throw
+	 * IllegalStateException.
+	 */
+	public void close() {
+		if (myReloader != null)
+			myReloader.shutdownNow();
+		Snapshot old = myCurrent.getAndSet(null);
+		if (old != null)
+			old.release();
+	}
+
+	public Iterable<String> topMatches(String prefix, int k) {
+		Snapshot snapshot = acquire();
+		try {
+			return snapshot.myAuto.topMatches(prefix, k);
+		} finally {
+			snapshot.release();
+		}
+	}
+
+	public String topMatch(String prefix) {
+		Snapshot snapshot = acquire();
+		try {
+			return snapshot.myAuto.topMatch(prefix);
+		} finally {
+			snapshot.release();
+		}
+	}
+
+	public double weightOf(String term) {
+		Snapshot snapshot = acquire();
+		try {
+			return snapshot.myAuto.weightOf(term);
+		} finally {
+			snapshot.release();
+		}
+	}
+
+	private static volatile boolean ourRunning;
+	private static volatile boolean ourReloading;
+
+	/**
+	 * Runs query threads against a SnapshotAutocomplete for the given number
+	 * of seconds while the main thread reloads it back to back, and prints
+	 * latency percentiles for queries that overlapped a reload and for those
+	 * that did not.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("usage: java SnapshotAutocomplete <termfile> [threads] [seconds]");
+			System.exit(1);
+		}
+		int threads = args.length > 1 ? Integer.parseInt(args[1])
+				: Math.max(2, Runtime.getRuntime().availableProcessors());
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		TermFileLoader data = new TermFileLoader(new File(args[0]), true);
+		System.out.println(data);
+		String[] terms = data.getTerms();
+		double[] weights = data.getWeights();
+		SnapshotAutocomplete auto = new SnapshotAutocomplete(new BinarySearchAutocomplete(terms, weights),
+				() -> new BinarySearchAutocomplete(terms, weights));
+
+		int capacity = 1 << 20;
+		long[][] steady = new long[threads][capacity];
+		long[][] reloading = new long[threads][capacity];
+		int[] steadyCount = new int[threads];
+		int[] reloadingCount = new int[threads];
+		Thread[] workers = new Thread[threads];
+		ourRunning = true;
+		for (int t = 0; t < threads; t++) {
+			int id = t;
+			workers[t] = new Thread(() -> {
+				Random random = new Random(id);
+				while (ourRunning) {
+					String term = terms[random.nextInt(terms.length)];
+					String prefix = term.substring(0, Math.min(1 + random.nextInt(3), term.length()));
+					boolean duringReload = ourReloading;
+					long start = System.nanoTime();
+					auto.topMatches(prefix, 10);
+					long nanos = System.nanoTime() - start;
+					if (duringReload || ourReloading) {
+						if (reloadingCount[id] < capacity)
+							reloading[id][reloadingCount[id]++] = nanos;
+					} else if (steadyCount[id] < capacity) {
+						steady[id][steadyCount[id]++] = nanos;
+					}
+				}
+			});
+			workers[t].start();
+		}
+		long end = System.nanoTime() + seconds * 1000000000L;
+		while (System.nanoTime() < end) {
+			ourReloading = true;
+			auto.reload().get();
+			ourReloading = false;
+			Thread.sleep(200);
+		}
+		ourRunning = false;
+		for (Thread worker : workers)
+			worker.join();
+		auto.close();
+
+		System.out.println(threads + " query threads, " + auto.getGeneration() + " reloads in " + seconds + " s");
+		System.out.printf("%-14s %10s %10s %10s %10s %10s%n", "", "queries", "p50(us)", "p99(us)", "p99.9(us)",
+				"max(us)");
+		printLatencies("steady", steady, steadyCount);
+		printLatencies("during reload", reloading, reloadingCount);
+	}
+
+	private static void printLatencies(String label, long[][] latencies, int[] counts) {
+		int total = 0;
+		for (int count : counts)
+			total += count;
+		long[] all = new long[total];
+		int next = 0;
+		for (int t = 0; t < counts.length; t++) {
+			System.arraycopy(latencies[t], 0, all, next, counts[t]);
+			next += counts[t];
+		}
+		Arrays.sort(all);
+		System.out.printf("%-14s %10d %10.1f %10.1f %10.1f %10.1f%n", label, total,
+				AutocompletorBenchmark.percentile(all, 50) / 1E3, AutocompletorBenchmark.percentile(all, 99) / 1E3,
+				AutocompletorBenchmark.percentile(all, 99.9) / 1E3, total == 0 ? 0 : all[total - 1] / 1E3);
+	}
+}
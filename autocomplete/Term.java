@@ -6,6 +6,7 @@
  * 
  *************************************************************************/
 
+import java.util.Arrays;
 import java.util.Comparator;
 
 public class Term implements Comparable<Term> {
@@ -113,6 +114,45 @@ public class Term implements Comparable<Term> {
 		return myWord.compareTo(that.myWord);
 	}
 
+	/**
+	 * Returns the Terms for the given words and weights in lexicographic
+	 * order, keeping only the last weight given for a word that appears more
+	 * than once (the same rule TrieAutocomplete's add follows).
+	 * 
+	 * @throws NullPointerException
+	 *             if either argument or any word is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different lengths, or a weight is
+	 *             negative
+	 */
+	public static Term[] sortedDistinct(String[] terms, double[] weights) {
+		if (terms == null || weights == null)
+			throw new NullPointerException("One or more arguments null");
+		if (terms.length != weights.length)
+			throw new IllegalArgumentException("terms and weights are not the same length");
+		Term[] sorted = new Term[terms.length];
+		for (int i = 0; i < terms.length; i++) {
+			sorted[i] = new Term(terms[i], weights[i]);
+		}
+		// stable, so equal words stay in input order and the last one wins
+		Arrays.sort(sorted);
+		return distinct(sorted);
+	}
+
+	/**
+	 * Returns the sorted Terms without repeated words, keeping the last Term
+	 * of each run of equal words. The array passed in is reused.
+	 */
+	public static Term[] distinct(Term[] sorted) {
+		int n = 0;
+		for (Term t : sorted) {
+			if (n > 0 && sorted[n - 1].myWord.equals(t.myWord))
+				n--;
+			sorted[n++] = t;
+		}
+		return Arrays.copyOf(sorted, n);
+	}
+
 	/**
 	 * Getter methods, use these in other classes which use Term
 	 */
@@ -0,0 +1,283 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+/**
+ * Loads a weighted term file, whose first line is the number of terms and
+ * whose remaining lines are a weight, a tab and a term, e.g.
+ *
+ * <pre>
+ * 3
+ *   5627187200	the
+ *   3395006400	of
+ *   2994418400	and
+ * </pre>
+ *
+ * The file is read through a FileChannel in large byte chunks, each ending
+ * at a line boundary. The chunks are then parsed in parallel straight into
+ * preallocated term and weight arrays: one parallel pass counts the lines in
+ * each chunk, which tells every chunk the index of its first term, and a
+ * second pass parses the weights from the raw bytes and decodes the terms
+ * as UTF-8. Blank lines are skipped and lines past the declared count are
+ * ignored.
+ *
+ */
+public class TermFileLoader {
+
+	private static final int CHUNK_SIZE = 1 << 23;
+
+	private final String[] myTerms;
+	private final double[] myWeights;
+	private final long myBytes;
+	private final long myNanos;
+
+	/**
+	 * A run of whole lines, buf[start..end-1]
+	 */
+	private static class Chunk {
+		final byte[] buf;
+		int start;
+		final int end;
+		int firstLine;
+
+		Chunk(byte[] buf, int start, int end) {
+			this.buf = buf;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	/**
+	 * Loads the term file.
+	 *
+	 * @param file
+	 *            - the file to load
+	 * @param lowerCase
+	 *            - whether to convert every term to lower case
+	 * @throws IOException
+	 *             if the file cannot be read or is malformatted
+	 */
+	public TermFileLoader(File file, boolean lowerCase) throws IOException {
+		this(file, lowerCase, CHUNK_SIZE);
+	}
+
+	/**
+	 * Loads the term file reading chunkSize bytes at a time, so tests can
+	 * exercise lines split across chunks.
+	 */
+	TermFileLoader(File file, boolean lowerCase, int chunkSize) throws IOException {
+		long start = System.nanoTime();
+		ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			myBytes = channel.size();
+			readChunks(channel, chunks, chunkSize);
+		}
+		if (chunks.isEmpty())
+			throw new IOException(file + " is empty");
+
+		Chunk first = chunks.get(0);
+		int newline = indexOf(first.buf, (byte) '\n', first.start, first.end);
+		int headerEnd = newline < 0 ? first.end : newline;
+		int n;
+		try {
+			n = Integer.parseInt(new String(first.buf, 0, headerEnd, StandardCharsets.ISO_8859_1).trim());
+		} catch (NumberFormatException e) {
+			throw new IOException("Bad term count in " + file);
+		}
+		if (n < 0)
+			throw new IOException("Bad term count in " + file);
+		first.start = newline < 0 ? first.end : newline + 1;
+
+		int[] counts = new int[chunks.size()];
+		IntStream.range(0, chunks.size()).parallel().forEach(c -> counts[c] = countLines(chunks.get(c)));
+		int lines = 0;
+		for (int c = 0; c < chunks.size(); c++) {
+			chunks.get(c).firstLine = lines;
+			lines += counts[c];
+		}
+		if (lines < n)
+			throw new IOException("Expected " + n + " terms in " + file + " but found " + lines);
+
+		myTerms = new String[n];
+		myWeights = new double[n];
+		try {
+			IntStream.range(0, chunks.size()).parallel().forEach(c -> parse(chunks.get(c), lowerCase));
+		} catch (UncheckedIOException e) {
+			// the pool may rethrow a copy that wraps the original
+			Throwable cause = e;
+			while (cause instanceof UncheckedIOException)
+				cause = cause.getCause();
+			throw (IOException) cause;
+		}
+		myNanos = System.nanoTime() - start;
+	}
+
+	/**
+	 * Reads the whole channel into chunks of about chunkSize bytes, each
+	 * ending just after a newline (or at the end of the file). The partial
+	 * line at the end of a read is carried over to the start of the next
+	 * chunk.
+	 */
+	private static void readChunks(FileChannel channel, ArrayList<Chunk> chunks, int chunkSize)
+			throws IOException {
+		byte[] carry = null;
+		int carryStart = 0;
+		int carryLength = 0;
+		while (true) {
+			byte[] buf = new byte[Math.max(chunkSize, 2 * carryLength)];
+			if (carryLength > 0)
+				System.arraycopy(carry, carryStart, buf, 0, carryLength);
+			ByteBuffer buffer = ByteBuffer.wrap(buf, carryLength, buf.length - carryLength);
+			boolean eof = false;
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					eof = true;
+					break;
+				}
+			}
+			int length = buffer.position();
+			if (eof) {
+				if (length > 0)
+					chunks.add(new Chunk(buf, 0, length));
+				return;
+			}
+			int end = lastIndexOf(buf, (byte) '\n', length) + 1;
+			if (end > 0)
+				chunks.add(new Chunk(buf, 0, end));
+			carry = buf;
+			carryStart = end;
+			carryLength = length - end;
+		}
+	}
+
+	private static int indexOf(byte[] buf, byte b, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buf[i] == b)
+				return i;
+		}
+		return -1;
+	}
+
+	private static int lastIndexOf(byte[] buf, byte b, int to) {
+		for (int i = to - 1; i >= 0; i--) {
+			if (buf[i] == b)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the end of the line running from from to newline, leaving out
+	 * a trailing carriage return.
+	 */
+	private static int lineEnd(byte[] buf, int from, int newline) {
+		if (newline > from && buf[newline - 1] == '\r')
+			return newline - 1;
+		return newline;
+	}
+
+	private static int countLines(Chunk chunk) {
+		int count = 0;
+		int from = chunk.start;
+		while (from < chunk.end) {
+			int newline = indexOf(chunk.buf, (byte) '\n', from, chunk.end);
+			if (newline < 0)
+				newline = chunk.end;
+			if (lineEnd(chunk.buf, from, newline) > from)
+				count++;
+			from = newline + 1;
+		}
+		return count;
+	}
+
+	private void parse(Chunk chunk, boolean lowerCase) {
+		byte[] buf = chunk.buf;
+		int line = chunk.firstLine;
+		int from = chunk.start;
+		while (from < chunk.end && line < myTerms.length) {
+			int newline = indexOf(buf, (byte) '\n', from, chunk.end);
+			if (newline < 0)
+				newline = chunk.end;
+			int end = lineEnd(buf, from, newline);
+			if (end > from) {
+				int tab = indexOf(buf, (byte) '\t', from, end);
+				if (tab < 0)
+					throw new UncheckedIOException(new IOException("No tab in term " + (line + 1)));
+				myWeights[line] = parseWeight(buf, from, tab, line);
+				String term = new String(buf, tab + 1, end - tab - 1, StandardCharsets.UTF_8);
+				myTerms[line] = lowerCase ? term.toLowerCase() : term;
+				line++;
+			}
+			from = newline + 1;
+		}
+	}
+
+	/**
+	 * Parses the weight in buf[from..to-1], ignoring surrounding spaces.
+	 * Whole numbers are parsed directly from the bytes; anything else goes
+	 * through Double.parseDouble.
+	 */
+	private static double parseWeight(byte[] buf, int from, int to, int line) {
+		while (from < to && buf[from] == ' ')
+			from++;
+		while (to > from && buf[to - 1] == ' ')
+			to--;
+		if (from < to && to - from <= 15) {
+			long value = 0;
+			int i = from;
+			while (i < to && buf[i] >= '0' && buf[i] <= '9') {
+				value = 10 * value + (buf[i] - '0');
+				i++;
+			}
+			if (i == to)
+				return value;
+		}
+		try {
+			return Double.parseDouble(new String(buf, from, to - from, StandardCharsets.ISO_8859_1));
+		} catch (NumberFormatException e) {
+			throw new UncheckedIOException(new IOException("Bad weight in term " + (line + 1)));
+		}
+	}
+
+	public String[] getTerms() {
+		return myTerms;
+	}
+
+	public double[] getWeights() {
+		return myWeights;
+	}
+
+	/**
+	 * Returns the time taken to load the file, in seconds.
+	 */
+	public double getSeconds() {
+		return myNanos / 1E9;
+	}
+
+	/**
+	 * Returns the rate the file was loaded at, in megabytes per second.
+	 */
+	public double getMegabytesPerSecond() {
+		return myBytes / 1E6 / getSeconds();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Loaded %d terms (%.1f MB) in %.3f s - %.1f MB/s", myTerms.length, myBytes / 1E6,
+				getSeconds(), getMegabytesPerSecond());
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("usage: java TermFileLoader <termfile>");
+			System.exit(1);
+		}
+		System.out.println(new TermFileLoader(new File(args[0]), false));
+	}
+}
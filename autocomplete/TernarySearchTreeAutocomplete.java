@@ -0,0 +1,319 @@
+import java.util.Arrays;
+
+/**
+ * Ternary search tree implementation of Autocompletor. Each node holds one
+ * character and three children: low and high for words whose character at
+ * this depth is smaller or larger, and equal for the words that continue
+ * past it. A child is found by comparing chars down a short binary tree
+ * instead of hashing a boxed Character, and the tree needs one node per
+ * distinct prefix plus nothing for the empty HashMap slots of
+ * TrieAutocomplete, which puts it between the trie and the binary search
+ * autocompletors in memory and speed.
+ *
+ * As in CompactTrieAutocomplete, nodes live in flat primitive arrays, and
+ * the tree is built once from the sorted distinct words. Every node takes
+ * the character of the middle word of its range, so each low/high tree is
+ * balanced by word count. mySubtreeMaxWeight of a node covers its whole
+ * ternary subtree, low and high included; topMatches runs the usual pruned
+ * best-first search over that bound, starting from the equal child of the
+ * node where the prefix ends, with IndexHeaps in place of PriorityQueues.
+ *
+ * Results are the same as TrieAutocomplete for the same terms and weights.
+ *
+ */
+public class TernarySearchTreeAutocomplete implements Autocompletor {
+
+	/**
+	 * The distinct words in lexicographic order, and their weights
+	 */
+	private String[] myWords;
+	private double[] myWordWeights;
+
+	/**
+	 * Number of nodes; the root is node 0 if there is one
+	 */
+	private int myNodeCount;
+
+	private char[] myLabels;
+
+	/**
+	 * Children of each node, or -1 if there is none
+	 */
+	private int[] myLow, myEqual, myHigh;
+
+	/**
+	 * Index into myWords of the word ending at each node, or -1 if no word
+	 * ends there
+	 */
+	private int[] myWordIndex;
+
+	/**
+	 * The maximum weight of any word in the ternary subtree rooted at each
+	 * node, including the low and high subtrees
+	 */
+	private double[] mySubtreeMaxWeight;
+
+	/**
+	 * Index of the empty word, which has no node, or -1 if it is not a term
+	 */
+	private int myEmptyWord = -1;
+
+	/**
+	 * Constructor method for TernarySearchTreeAutocomplete. If a word appears
+	 * more than once, its last weight is used, as in TrieAutocomplete.
+	 *
+	 * @param terms
+	 *            - The words we will autocomplete from
+	 * @param weights
+	 *            - Their weights, such that terms[i] has weight weights[i].
+	 * @throws NullPointerException
+	 *             if either argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different lengths, or a weight is
+	 *             negative
+	 */
+	public TernarySearchTreeAutocomplete(String[] terms, double[] weights) {
+		Term[] sorted = Term.sortedDistinct(terms, weights);
+		myWords = new String[sorted.length];
+		myWordWeights = new double[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			myWords[i] = sorted[i].getWord();
+			myWordWeights[i] = sorted[i].getWeight();
+		}
+		int capacity = Math.max(16, myWords.length);
+		myLabels = new char[capacity];
+		myLow = new int[capacity];
+		myEqual = new int[capacity];
+		myHigh = new int[capacity];
+		myWordIndex = new int[capacity];
+		mySubtreeMaxWeight = new double[capacity];
+		int start = 0;
+		if (myWords.length > 0 && myWords[0].isEmpty()) {
+			myEmptyWord = 0;
+			start = 1;
+		}
+		build(start, myWords.length, 0);
+		myLabels = Arrays.copyOf(myLabels, myNodeCount);
+		myLow = Arrays.copyOf(myLow, myNodeCount);
+		myEqual = Arrays.copyOf(myEqual, myNodeCount);
+		myHigh = Arrays.copyOf(myHigh, myNodeCount);
+		myWordIndex = Arrays.copyOf(myWordIndex, myNodeCount);
+		mySubtreeMaxWeight = Arrays.copyOf(mySubtreeMaxWeight, myNodeCount);
+	}
+
+	/**
+	 * Builds the tree for myWords[lo..hi-1], which share their first depth
+	 * characters and are all longer than depth, and returns its root, or -1
+	 * if the range is empty. The root takes the character at depth of the
+	 * middle word; the run of words with that character becomes its equal
+	 * subtree (less the word that ends at it, which sorts first), and the
+	 * words before and after the run its low and high subtrees.
+	 */
+	private int build(int lo, int hi, int depth) {
+		if (lo >= hi)
+			return -1;
+		char ch = myWords[(lo + hi) >>> 1].charAt(depth);
+		int start = (lo + hi) >>> 1;
+		while (start > lo && myWords[start - 1].charAt(depth) == ch)
+			start--;
+		int stop = (lo + hi) >>> 1;
+		while (stop < hi && myWords[stop].charAt(depth) == ch)
+			stop++;
+
+		int node = newNode(ch);
+		int word = myWords[start].length() == depth + 1 ? start : -1;
+		myWordIndex[node] = word;
+		int low = build(lo, start, depth);
+		int equal = build(word >= 0 ? start + 1 : start, stop, depth + 1);
+		int high = build(stop, hi, depth);
+		myLow[node] = low;
+		myEqual[node] = equal;
+		myHigh[node] = high;
+		double max = word >= 0 ? myWordWeights[word] : 0;
+		max = Math.max(max, maxWeight(low));
+		max = Math.max(max, maxWeight(equal));
+		mySubtreeMaxWeight[node] = Math.max(max, maxWeight(high));
+		return node;
+	}
+
+	private double maxWeight(int node) {
+		return node < 0 ? 0 : mySubtreeMaxWeight[node];
+	}
+
+	private int newNode(char ch) {
+		if (myNodeCount == myLabels.length) {
+			int capacity = 2 * myNodeCount;
+			myLabels = Arrays.copyOf(myLabels, capacity);
+			myLow = Arrays.copyOf(myLow, capacity);
+			myEqual = Arrays.copyOf(myEqual, capacity);
+			myHigh = Arrays.copyOf(myHigh, capacity);
+			myWordIndex = Arrays.copyOf(myWordIndex, capacity);
+			mySubtreeMaxWeight = Arrays.copyOf(mySubtreeMaxWeight, capacity);
+		}
+		myLabels[myNodeCount] = ch;
+		return myNodeCount++;
+	}
+
+	/**
+	 * Returns the node of the last character of prefix, or -1 if no word
+	 * starts with prefix. prefix must not be empty.
+	 */
+	private int findNode(String prefix) {
+		int node = myNodeCount > 0 ? 0 : -1;
+		int i = 0;
+		while (node >= 0) {
+			char ch = prefix.charAt(i);
+			if (ch < myLabels[node]) {
+				node = myLow[node];
+			} else if (ch > myLabels[node]) {
+				node = myHigh[node];
+			} else if (++i == prefix.length()) {
+				return node;
+			} else {
+				node = myEqual[node];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Required by the Autocompletor interface. Returns the k words with the
+	 * largest weight which start with prefix, in descending weight order.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public Iterable<String> topMatches(String prefix, int k) {
+		return weightedTopMatches(prefix, k);
+	}
+
+	/**
+	 * Returns the same matches as topMatches, with their weights.
+	 */
+	@Override
+	public MatchList weightedTopMatches(String prefix, int k) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal value of k:" + k);
+		MatchList ret = new MatchList(Math.min(k, 16));
+		if (k == 0)
+			return ret;
+		IndexHeap best = new IndexHeap(k, false);
+		int subtree;
+		if (prefix.isEmpty()) {
+			if (myEmptyWord >= 0)
+				best.add(myEmptyWord, myWordWeights[myEmptyWord]);
+			subtree = myNodeCount > 0 ? 0 : -1;
+		} else {
+			int node = findNode(prefix);
+			if (node < 0)
+				return ret;
+			if (myWordIndex[node] >= 0)
+				best.add(myWordIndex[node], myWordWeights[myWordIndex[node]]);
+			subtree = myEqual[node];
+		}
+		if (subtree >= 0) {
+			IndexHeap nodes = new IndexHeap(16, true);
+			nodes.add(subtree, mySubtreeMaxWeight[subtree]);
+			while (!nodes.isEmpty()) {
+				if (best.size() == k && nodes.peekKey() <= best.peekKey())
+					break;
+				int node = nodes.remove();
+				int word = myWordIndex[node];
+				if (word >= 0) {
+					if (best.size() < k) {
+						best.add(word, myWordWeights[word]);
+					} else if (myWordWeights[word] > best.peekKey()) {
+						best.remove();
+						best.add(word, myWordWeights[word]);
+					}
+				}
+				if (myLow[node] >= 0)
+					nodes.add(myLow[node], mySubtreeMaxWeight[myLow[node]]);
+				if (myEqual[node] >= 0)
+					nodes.add(myEqual[node], mySubtreeMaxWeight[myEqual[node]]);
+				if (myHigh[node] >= 0)
+					nodes.add(myHigh[node], mySubtreeMaxWeight[myHigh[node]]);
+			}
+		}
+		while (!best.isEmpty()) {
+			int word = best.remove();
+			ret.add(myWords[word], myWordWeights[word]);
+		}
+		ret.reverse();
+		return ret;
+	}
+
+	/**
+	 * Given a prefix, returns the largest-weight word starting with that
+	 * prefix, or an empty string if none exists. Below the prefix, follows
+	 * the child whose subtree max weight equals the current node's until
+	 * reaching the word that carries it.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	public String topMatch(String prefix) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		int best = -1;
+		int node;
+		if (prefix.isEmpty()) {
+			best = myEmptyWord;
+			node = myNodeCount > 0 ? 0 : -1;
+		} else {
+			node = findNode(prefix);
+			if (node < 0)
+				return "";
+			best = myWordIndex[node];
+			node = myEqual[node];
+		}
+		if (node >= 0 && (best < 0 || mySubtreeMaxWeight[node] > myWordWeights[best])) {
+			double max = mySubtreeMaxWeight[node];
+			while (myWordIndex[node] < 0 || myWordWeights[myWordIndex[node]] != max) {
+				if (myLow[node] >= 0 && mySubtreeMaxWeight[myLow[node]] == max)
+					node = myLow[node];
+				else if (myEqual[node] >= 0 && mySubtreeMaxWeight[myEqual[node]] == max)
+					node = myEqual[node];
+				else
+					node = myHigh[node];
+			}
+			best = myWordIndex[node];
+		}
+		return best < 0 ? "" : myWords[best];
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary,
+	 * return 0.0
+	 */
+	public double weightOf(String term) {
+		int word = term.isEmpty() ? myEmptyWord : -1;
+		if (!term.isEmpty()) {
+			int node = findNode(term);
+			if (node >= 0)
+				word = myWordIndex[node];
+		}
+		return word < 0 ? 0.0 : myWordWeights[word];
+	}
+
+	/**
+	 * Returns the number of nodes in the tree
+	 */
+	public int nodeCount() {
+		return myNodeCount;
+	}
+
+	/**
+	 * Returns the number of bytes held by the node arrays and the word weight
+	 * array (not counting the word Strings themselves, which every
+	 * implementation keeps).
+	 */
+	public long sizeInBytes() {
+		return 2L * myLabels.length + 4L * (myLow.length + myEqual.length + myHigh.length + myWordIndex.length)
+				+ 8L * mySubtreeMaxWeight.length + 8L * myWordWeights.length;
+	}
+}
@@ -0,0 +1,92 @@
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class TestAutocompleteServer {
+
+	String[] names = { "ape", "app", "ban", "bat", "bee", "car", "cat", "new york" };
+	double[] weights = { 6, 4, 2, 3, 5, 7, 1, 8 };
+
+	/**
+	 * Tests each request type, including prefixes with spaces, and that bad
+	 * requests are answered with ERR without closing the connection
+	 */
+	@Test(timeout = 10000)
+	public void testRequests() throws IOException {
+		try (AutocompleteServer server = new AutocompleteServer(new TrieAutocomplete(names, weights), 0);
+				Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			BufferedReader in = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+			out.write("TOP 2 a\n");
+			out.flush();
+			assertEquals("2", in.readLine());
+			assertEquals("6.0\tape", in.readLine());
+			assertEquals("4.0\tapp", in.readLine());
+			out.write("TOP 3 \n");
+			out.flush();
+			assertEquals("3", in.readLine());
+			assertEquals("8.0\tnew york", in.readLine());
+			in.readLine();
+			in.readLine();
+			out.write("TOP 5 x\nMATCH b\nMATCH new \nMATCH x\nWEIGHT bat\nWEIGHT new york\n");
+			out.flush();
+			assertEquals("0", in.readLine());
+			assertEquals("bee", in.readLine());
+			assertEquals("new york", in.readLine());
+			assertEquals("", in.readLine());
+			assertEquals("3.0", in.readLine());
+			assertEquals("8.0", in.readLine());
+			out.write("TOP x a\nTOP -1 a\nTOP 3\nHELLO\nTOP 2000000000 a\nMATCH ca\n");
+			out.flush();
+			for (int i = 0; i < 5; i++)
+				assertTrue(in.readLine().startsWith("ERR"));
+			assertEquals("car", in.readLine());
+			out.write("QUIT\n");
+			out.flush();
+			assertTrue(in.readLine() == null);
+		}
+	}
+
+	/**
+	 * Tests that a query the Autocompletor fails on is answered with ERR
+	 * without closing the connection
+	 */
+	@Test(timeout = 10000)
+	public void testFailingQuery() throws IOException {
+		OffHeapTrieAutocomplete auto = new OffHeapTrieAutocomplete(names, weights);
+		auto.close();
+		try (AutocompleteServer server = new AutocompleteServer(auto, 0);
+				Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			BufferedReader in = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+			out.write("TOP 2 a\nMATCH a\n");
+			out.flush();
+			assertTrue(in.readLine().startsWith("ERR"));
+			assertTrue(in.readLine().startsWith("ERR"));
+		}
+	}
+
+	/**
+	 * Tests that the load generator completes requests against a server
+	 */
+	@Test(timeout = 20000)
+	public void testLoadGenerator() throws Exception {
+		try (AutocompleteServer server = new AutocompleteServer(new BinarySearchAutocomplete(names, weights), 0)) {
+			long[] latencies = AutocompleteLoadGenerator.run(server.getPort(), names, 4, 1);
+			assertTrue(latencies.length > 0);
+			for (int i = 1; i < latencies.length; i++)
+				assertTrue(latencies[i - 1] <= latencies[i]);
+		}
+	}
+}
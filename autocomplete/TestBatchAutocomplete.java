@@ -0,0 +1,65 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class TestBatchAutocomplete {
+
+	private String[] iterToArr(Iterable<String> it) {
+		ArrayList<String> list = new ArrayList<String>();
+		for (String s : it)
+			list.add(s);
+		return list.toArray(new String[0]);
+	}
+
+	/**
+	 * Tests that a batch, with repeated and missing prefixes and varying k,
+	 * is answered in input order the same as one query at a time, by each
+	 * kind of Autocompletor and with enough requests to be split
+	 */
+	@Test(timeout = 20000)
+	public void testMatchesSingleQueries() {
+		Random random = new Random(14);
+		String[] names = new String[2000];
+		double[] weights = new double[names.length];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = Integer.toString(i * 7919 % 10007, 5);
+			weights[i] = i;
+		}
+		String[] prefixes = new String[5000];
+		int[] ks = new int[prefixes.length];
+		for (int i = 0; i < prefixes.length; i++) {
+			String name = names[random.nextInt(names.length)];
+			prefixes[i] = name.substring(0, random.nextInt(name.length() + 1));
+			if (i % 10 == 0)
+				prefixes[i] += "9";
+			ks[i] = 1 + random.nextInt(5);
+		}
+		Autocompletor[] autos = { new BruteAutocomplete(names, weights), new BruteAutocomplete(names, weights, true),
+				new BinarySearchAutocomplete(names, weights),
+				new BinarySearchAutocomplete(names, weights, true), new TrieAutocomplete(names, weights),
+				new TrieAutocomplete(names, weights, 3) };
+		ForkJoinPool pool = new ForkJoinPool(4);
+		for (Autocompletor auto : autos) {
+			MatchList[] results = BatchAutocomplete.topMatches(auto, prefixes, ks, pool);
+			assertEquals(prefixes.length, results.length);
+			for (int i = 0; i < prefixes.length; i++) {
+				assertArrayEquals("wrong matches for " + prefixes[i] + " " + ks[i],
+						iterToArr(auto.topMatches(prefixes[i], ks[i])), iterToArr(results[i]));
+			}
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Tests that requests are checked before any is answered
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testLengthMismatch() {
+		BatchAutocomplete.topMatches(new TrieAutocomplete(new String[0], new double[0]), new String[] { "a" },
+				new int[0], ForkJoinPool.commonPool());
+	}
+}
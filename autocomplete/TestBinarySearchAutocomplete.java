@@ -193,4 +193,111 @@ public class TestBinarySearchAutocomplete {
 		assertEquals(6, BinarySearchAutocomplete.lastIndexOf(terms, new Term("ba", 0), new Term.PrefixOrder(2)));
 		assertEquals(9, BinarySearchAutocomplete.lastIndexOf(terms, new Term("b", 0), new Term.PrefixOrder(1)));
 	}
+
+	/**
+	 * Tests that topMatch and topMatches give the same answers with the
+	 * range-maximum index as without it
+	 */
+	@Test(timeout = 10000)
+	public void testRangeMaxMatches() {
+		String[] names = new String[500];
+		double[] weights = new double[names.length];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = Integer.toString(i * 7919 % 1009, 3);
+			weights[i] = i * 7 % 500;
+		}
+		BinarySearchAutocomplete plain = new BinarySearchAutocomplete(names, weights);
+		BinarySearchAutocomplete indexed = new BinarySearchAutocomplete(names, weights, true);
+		String[] queries = { "", "1", "2", "10", "212", "1000", "3" };
+		for (String query : queries) {
+			assertEquals("wrong top match for " + query, plain.topMatch(query), indexed.topMatch(query));
+			for (int k = 0; k <= 40; k += 8) {
+				assertArrayEquals("wrong top matches for " + query + " " + k, iterToArr(plain.topMatches(query, k)),
+						iterToArr(indexed.topMatches(query, k)));
+			}
+		}
+	}
+
+	/**
+	 * Tests that a BinarySearchAutocomplete bulk-loaded by AutocompleteBuilder
+	 * answers queries the same way as one built by the constructor
+	 */
+	@Test(timeout = 10000)
+	public void testBuildBinarySearch() {
+		BinarySearchAutocomplete sorted = new BinarySearchAutocomplete(myNames, myWeights);
+		BinarySearchAutocomplete built = AutocompleteBuilder.buildBinarySearch(myNames, myWeights,
+				java.util.concurrent.ForkJoinPool.commonPool());
+		String[] queries = { "", "a", "ap", "b", "ba", "c", "cat", "d" };
+		for (String query : queries) {
+			assertEquals("wrong top match for " + query, sorted.topMatch(query), built.topMatch(query));
+			assertArrayEquals("wrong top matches for " + query, iterToArr(sorted.topMatches(query, 10)),
+					iterToArr(built.topMatches(query, 10)));
+		}
+	}
+
+	/**
+	 * Tests that a CompletionSession, typed into character by character with
+	 * backspaces and jumps, answers the same as topMatch and topMatches on
+	 * its whole text, with and without the range-maximum index
+	 */
+	@Test(timeout = 10000)
+	public void testSession() {
+		String[] names = new String[500];
+		double[] weights = new double[names.length];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = Integer.toString(i * 7919 % 1009, 3);
+			weights[i] = i * 7 % 500;
+		}
+		String[] texts = { "", "1", "12", "120", "1201", "12012", "1", "", "2", "21", "2100", "3", "30", "2",
+				"1000", "100", "" };
+		for (boolean rangeMax : new boolean[] { false, true }) {
+			BinarySearchAutocomplete auto = new BinarySearchAutocomplete(names, weights, rangeMax);
+			CompletionSession session = auto.newSession();
+			for (String text : texts) {
+				session.setText(text);
+				assertEquals(text, session.getText());
+				assertEquals("wrong top match for " + text, auto.topMatch(text), session.topMatch());
+				for (int k = 0; k <= 20; k += 5) {
+					assertArrayEquals("wrong top matches for " + text + " " + k,
+							iterToArr(auto.topMatches(text, k)), iterToArr(session.topMatches(k)));
+				}
+			}
+			session.backspace();
+			assertEquals("", session.getText());
+		}
+		CompletionSession empty = new BinarySearchAutocomplete(new String[0], new double[0]).newSession();
+		empty.append('a');
+		assertEquals("", empty.topMatch());
+		assertEquals(0, iterToArr(empty.topMatches(3)).length);
+	}
+
+	/**
+	 * Tests that weightedTopMatches returns the terms of topMatches with
+	 * their weights, for binary search with and without the range-maximum
+	 * index, and from a session
+	 */
+	@Test(timeout = 10000)
+	public void testWeightedTopMatches() {
+		Autocompletor[] autos = { new BinarySearchAutocomplete(myNames, myWeights),
+				new BinarySearchAutocomplete(myNames, myWeights, true) };
+		String[] queries = { "", "a", "ap", "b", "ba", "c", "cat", "d" };
+		for (Autocompletor auto : autos) {
+			CompletionSession session = auto.newSession();
+			for (String query : queries) {
+				session.setText(query);
+				for (int k = 1; k <= 8; k += 3) {
+					String[] terms = iterToArr(auto.topMatches(query, k));
+					MatchList matches = auto.weightedTopMatches(query, k);
+					MatchList fromSession = session.weightedTopMatches(k);
+					assertArrayEquals("wrong weighted matches for " + query, terms, iterToArr(matches));
+					assertArrayEquals("wrong session matches for " + query, terms, iterToArr(fromSession));
+					for (int i = 0; i < terms.length; i++) {
+						assertEquals("wrong weight for " + terms[i], auto.weightOf(terms[i]), matches.getWeight(i), 1E-9);
+						assertEquals("wrong weight for " + terms[i], auto.weightOf(terms[i]), fromSession.getWeight(i),
+								1E-9);
+					}
+				}
+			}
+		}
+	}
 }
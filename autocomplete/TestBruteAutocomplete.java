@@ -0,0 +1,113 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestBruteAutocomplete {
+
+	String[] names = { "ape", "app", "ban", "bat", "bee", "car", "cat" };
+	double[] weights = { 6, 4, 2, 3, 5, 7, 1 };
+
+	/**
+	 * Returns one BruteAutocomplete in input order and one in weight order
+	 */
+	public Autocompletor[] getInstances(String[] names, double[] weights) {
+		return new Autocompletor[] { getInstance(names, weights, false), getInstance(names, weights, true) };
+	}
+
+	public Autocompletor getInstance(String[] names, double[] weights, boolean weightOrder) {
+		return new BruteAutocomplete(names, weights, weightOrder);
+	}
+
+	private String[] iterToArr(Iterable<String> it) {
+		ArrayList<String> list = new ArrayList<String>();
+		for (String s : it)
+			list.add(s);
+		return list.toArray(new String[0]);
+	}
+
+	/**
+	 * Tests that weightedTopMatches returns the terms of topMatches with
+	 * their weights, in input and weight order, and from a session
+	 */
+	@Test(timeout = 10000)
+	public void testWeightedTopMatches() {
+		String[] queries = { "", "a", "ap", "b", "ba", "c", "cat", "d" };
+		for (Autocompletor auto : getInstances(names, weights)) {
+			CompletionSession session = auto.newSession();
+			for (String query : queries) {
+				session.setText(query);
+				for (int k = 1; k <= 8; k += 3) {
+					String[] terms = iterToArr(auto.topMatches(query, k));
+					MatchList matches = auto.weightedTopMatches(query, k);
+					MatchList fromSession = session.weightedTopMatches(k);
+					assertArrayEquals("wrong weighted matches for " + query, terms, iterToArr(matches));
+					assertArrayEquals("wrong session matches for " + query, terms, iterToArr(fromSession));
+					for (int i = 0; i < terms.length; i++) {
+						assertEquals("wrong weight for " + terms[i], auto.weightOf(terms[i]), matches.getWeight(i), 1E-9);
+						assertEquals("wrong weight for " + terms[i], auto.weightOf(terms[i]), fromSession.getWeight(i),
+								1E-9);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests that input order and weight order agree with binary search on
+	 * scrambled words with distinct weights, including k = 0 and topMatch,
+	 * which must return the heaviest match rather than the last
+	 */
+	@Test(timeout = 10000)
+	public void testMatchesBinarySearch() {
+		String[] words = new String[1000];
+		double[] wts = new double[words.length];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = Integer.toString(i * 7919 % 10007, 4);
+			wts[i] = (i * 31 % words.length) + 1;
+		}
+		Autocompletor expected = new BinarySearchAutocomplete(words, wts);
+		String[] queries = { "", "1", "2", "12", "301", "33333", "4" };
+		for (Autocompletor auto : getInstances(words, wts)) {
+			for (String query : queries) {
+				assertEquals("wrong top match for " + query, expected.topMatch(query), auto.topMatch(query));
+				for (int k = 0; k <= 30; k += 10)
+					assertArrayEquals("wrong matches for " + query + " " + k,
+							iterToArr(expected.topMatches(query, k)), iterToArr(auto.topMatches(query, k)));
+			}
+			assertEquals(wts[5], auto.weightOf(words[5]), 1E-9);
+			assertEquals(0.0, auto.weightOf("4"), 1E-9);
+		}
+	}
+
+	/**
+	 * Tests that weight order sorts weights less than 1 apart by their exact
+	 * values, and agrees with input order, which keeps a heap of doubles, on
+	 * random fractional weights
+	 */
+	@Test(timeout = 10000)
+	public void testFractionalWeights() {
+		Autocompletor test = getInstance(new String[] { "ab", "ac", "ad" }, new double[] { 0.2, 0.5, 0.9 }, true);
+		assertArrayEquals(new String[] { "ad" }, iterToArr(test.topMatches("a", 1)));
+		assertArrayEquals(new String[] { "ad", "ac", "ab" }, iterToArr(test.topMatches("a", 3)));
+		assertEquals("ad", test.topMatch("a"));
+
+		Random rng = new Random(1234);
+		String[] words = new String[2000];
+		double[] wts = new double[words.length];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = Integer.toString(i, 3);
+			wts[i] = rng.nextDouble() * 3;
+		}
+		Autocompletor expected = getInstance(words, wts, false);
+		Autocompletor auto = getInstance(words, wts, true);
+		String[] queries = { "", "1", "2", "12", "201", "1111" };
+		for (String query : queries) {
+			for (int k = 1; k <= 30; k += 7)
+				assertArrayEquals("wrong matches for " + query + " " + k,
+						iterToArr(expected.topMatches(query, k)), iterToArr(auto.topMatches(query, k)));
+		}
+	}
+}
@@ -0,0 +1,109 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+public class TestCachingAutocomplete {
+
+	String[] names = { "ape", "app", "ban", "bat", "bee", "car", "cat" };
+	double[] weights = { 6, 4, 2, 3, 5, 7, 1 };
+
+	private String[] iterToArr(Iterable<String> it) {
+		ArrayList<String> list = new ArrayList<String>();
+		for (String s : it)
+			list.add(s);
+		return list.toArray(new String[0]);
+	}
+
+	/**
+	 * Tests that cached answers match the underlying Autocompletor for every
+	 * prefix and k, asked in an order that mixes hits and misses
+	 */
+	@Test(timeout = 10000)
+	public void testMatchesUnderlying() {
+		Autocompletor brute = new BinarySearchAutocomplete(names, weights);
+		CachingAutocomplete cache = new CachingAutocomplete(brute, 4);
+		String[] queries = { "", "a", "ap", "ape", "b", "ba", "be", "c", "ca", "cat", "d" };
+		for (int round = 0; round < 3; round++) {
+			for (String query : queries) {
+				for (int k : new int[] { 2, 0, 5, 1, 8, 3 }) {
+					assertArrayEquals("wrong top matches for " + query + " " + k,
+							iterToArr(brute.topMatches(query, k)), iterToArr(cache.topMatches(query, k)));
+				}
+				assertEquals("wrong top match for " + query, brute.topMatch(query), cache.topMatch(query));
+				assertEquals("wrong weight for " + query, brute.weightOf(query), cache.weightOf(query), 1E-9);
+			}
+		}
+		assertTrue(cache.size() <= 4);
+	}
+
+	/**
+	 * Tests that smaller k and, once every match is known, larger k are served
+	 * from the cache
+	 */
+	@Test(timeout = 10000)
+	public void testServedFromLargerK() {
+		CachingAutocomplete cache = new CachingAutocomplete(new BinarySearchAutocomplete(names, weights), 10);
+		cache.topMatches("", 3);
+		assertEquals(1, cache.getMisses());
+		assertArrayEquals(new String[] { "car", "ape" }, iterToArr(cache.topMatches("", 2)));
+		assertEquals("car", cache.topMatch(""));
+		assertEquals(2, cache.getHits());
+		cache.topMatches("", 4);
+		assertEquals(2, cache.getMisses());
+		// "b" has three matches, so asking for five gets all of them
+		cache.topMatches("b", 5);
+		assertArrayEquals(new String[] { "bee", "bat", "ban" }, iterToArr(cache.topMatches("b", 100)));
+		assertEquals(3, cache.getHits());
+		assertEquals(3, cache.getMisses());
+	}
+
+	/**
+	 * Tests LRU eviction, invalidation, and invalidation on a snapshot swap
+	 */
+	@Test(timeout = 10000)
+	public void testEvictionAndInvalidation() {
+		SnapshotAutocomplete snapshots = new SnapshotAutocomplete(new BinarySearchAutocomplete(names, weights));
+		CachingAutocomplete cache = new CachingAutocomplete(snapshots, 2);
+		snapshots.addSwapListener(cache::invalidateAll);
+		cache.topMatch("a");
+		cache.topMatch("b");
+		cache.topMatch("a");
+		cache.topMatch("c");
+		assertEquals(1, cache.getEvictions());
+		assertEquals(2, cache.size());
+		cache.topMatch("a");
+		assertEquals(2, cache.getHits());
+		cache.topMatch("b");
+		assertEquals(4, cache.getMisses());
+
+		snapshots.swap(new BinarySearchAutocomplete(new String[] { "bob" }, new double[] { 1 }));
+		assertEquals(0, cache.size());
+		assertEquals("bob", cache.topMatch("b"));
+		cache.invalidate("b");
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * Tests that with admission, a full cache of frequently asked prefixes
+	 * keeps them rather than admitting prefixes asked for only once
+	 */
+	@Test(timeout = 10000)
+	public void testAdmission() {
+		CachingAutocomplete cache = new CachingAutocomplete(new BinarySearchAutocomplete(names, weights), 2, true);
+		for (int i = 0; i < 5; i++) {
+			cache.topMatch("a");
+			cache.topMatch("b");
+		}
+		cache.topMatch("c");
+		cache.topMatch("ca");
+		cache.topMatch("d");
+		assertEquals(3, cache.getRejections());
+		assertEquals(0, cache.getEvictions());
+		long hits = cache.getHits();
+		cache.topMatch("a");
+		cache.topMatch("b");
+		assertEquals(hits + 2, cache.getHits());
+	}
+}
@@ -0,0 +1,133 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+public class TestColumnarBinarySearchAutocomplete {
+
+	String[] names = { "ape", "app", "ban", "bat", "bee", "car", "cat" };
+	double[] weights = { 6, 4, 2, 3, 5, 7, 1 };
+
+	public Autocompletor getInstance() {
+		return getInstance(names, weights);
+	}
+
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		return new ColumnarBinarySearchAutocomplete(names, weights);
+	}
+
+	private String[] iterToArr(Iterable<String> it) {
+		ArrayList<String> list = new ArrayList<String>();
+		for (String s : it)
+			list.add(s);
+		return list.toArray(new String[0]);
+	}
+
+	/**
+	 * Tests correctness of topMatch() for a few simple cases
+	 */
+	@Test(timeout = 10000)
+	public void testTopMatch() {
+		Autocompletor test = getInstance();
+		String[] queries = { "", "a", "ap", "b", "ba", "c", "ca", "cat", "d", " " };
+		String[] results = { "car", "ape", "ape", "bee", "bat", "car", "car", "cat", "", "" };
+		for (int i = 0; i < queries.length; i++) {
+			assertEquals("wrong top match for " + queries[i], results[i], test.topMatch(queries[i]));
+		}
+	}
+
+	/**
+	 * Tests correctness of topKMatches() for a few simple cases
+	 */
+	@Test(timeout = 10000)
+	public void testTopKMatches() {
+		Autocompletor test = getInstance();
+		String[] queries = { "", "", "", "", "a", "ap", "b", "ba", "d" };
+		int[] ks = { 8, 1, 2, 3, 1, 1, 2, 2, 100 };
+		String[][] results = { { "car", "ape", "bee", "app", "bat", "ban", "cat" }, { "car" }, { "car", "ape" },
+				{ "car", "ape", "bee" }, { "ape" }, { "ape" }, { "bee", "bat" }, { "bat", "ban" }, {} };
+		for (int i = 0; i < queries.length; i++) {
+			assertArrayEquals("wrong top matches for " + queries[i] + " " + ks[i], results[i],
+					iterToArr(test.topMatches(queries[i], ks[i])));
+		}
+	}
+
+	/**
+	 * Tests weightOf() for words, prefixes that are not words, and misses
+	 */
+	@Test(timeout = 10000)
+	public void testWeightOf() {
+		Autocompletor test = getInstance();
+		for (int i = 0; i < names.length; i++)
+			assertEquals(weights[i], test.weightOf(names[i]), 1E-9);
+		assertEquals(0.0, test.weightOf("ca"), 1E-9);
+		assertEquals(0.0, test.weightOf("dog"), 1E-9);
+	}
+
+	/**
+	 * Tests comparePrefix on words shorter than, equal to, and longer than
+	 * the prefix
+	 */
+	@Test(timeout = 10000)
+	public void testComparePrefix() {
+		assertTrue(ColumnarBinarySearchAutocomplete.comparePrefix("ap", "app") < 0);
+		assertTrue(ColumnarBinarySearchAutocomplete.comparePrefix("ape", "app") < 0);
+		assertEquals(0, ColumnarBinarySearchAutocomplete.comparePrefix("app", "app"));
+		assertEquals(0, ColumnarBinarySearchAutocomplete.comparePrefix("apple", "app"));
+		assertEquals(0, ColumnarBinarySearchAutocomplete.comparePrefix("apple", ""));
+		assertTrue(ColumnarBinarySearchAutocomplete.comparePrefix("b", "app") > 0);
+	}
+
+	/**
+	 * Compares against BinarySearchAutocomplete on generated words with distinct
+	 * weights, and checks that the weights returned with each match are right.
+	 */
+	@Test(timeout = 10000)
+	public void testMatchesBinarySearch() {
+		String[] words = new String[2000];
+		double[] wts = new double[words.length];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = Integer.toString(i * 7919 % 10007, 4);
+			wts[i] = i + 1;
+		}
+		BinarySearchAutocomplete binary = new BinarySearchAutocomplete(words, wts);
+		ColumnarBinarySearchAutocomplete columnar = (ColumnarBinarySearchAutocomplete) getInstance(words, wts);
+		String[] queries = { "", "1", "2", "12", "33", "201", "1203", "4" };
+		for (String q : queries) {
+			assertEquals("top match for " + q, binary.topMatch(q), columnar.topMatch(q));
+			for (int k = 1; k <= 20; k += 6) {
+				MatchList matches = columnar.topMatches(q, k);
+				assertArrayEquals("top matches for " + q + " " + k, iterToArr(binary.topMatches(q, k)),
+						iterToArr(matches));
+				for (int i = 0; i < matches.size(); i++)
+					assertEquals(binary.weightOf(matches.getTerm(i)), matches.getWeight(i), 1E-9);
+			}
+		}
+	}
+
+	/**
+	 * Tests that each query returns its own list, which later queries leave
+	 * alone, and that weightedTopMatches with a list of the caller's refills
+	 * and returns that list
+	 */
+	@Test(timeout = 10000)
+	public void testResultsNotShared() {
+		ColumnarBinarySearchAutocomplete test = (ColumnarBinarySearchAutocomplete) getInstance();
+		MatchList first = test.weightedTopMatches("a", 2);
+		MatchList second = test.topMatches("b", 2);
+		assertNotSame(first, second);
+		assertArrayEquals(new String[] { "ape", "app" }, iterToArr(first));
+		assertArrayEquals(new String[] { "bee", "bat" }, iterToArr(second));
+
+		MatchList into = new MatchList(1);
+		assertSame(into, test.weightedTopMatches("", 3, into));
+		assertArrayEquals(new String[] { "car", "ape", "bee" }, iterToArr(into));
+		assertSame(into, test.weightedTopMatches("ba", 5, into));
+		assertArrayEquals(new String[] { "bat", "ban" }, iterToArr(into));
+		assertEquals(3.0, into.getWeight(0), 1E-9);
+		assertSame(into, test.weightedTopMatches("ba", 0, into));
+		assertEquals(0, into.size());
+		assertArrayEquals(new String[] { "ape", "app" }, iterToArr(first));
+	}
+}
@@ -0,0 +1,97 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestCompactTrieAutocomplete {
+
+	String[] names = { "ape", "app", "ban", "bat", "bee", "car", "cat" };
+	double[] weights = { 6, 4, 2, 3, 5, 7, 1 };
+
+	public Autocompletor getInstance() {
+		return getInstance(names, weights);
+	}
+
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		return new CompactTrieAutocomplete(names, weights);
+	}
+
+	private String[] iterToArr(Iterable<String> it) {
+		ArrayList<String> list = new ArrayList<String>();
+		for (String s : it)
+			list.add(s);
+		return list.toArray(new String[0]);
+	}
+
+	/**
+	 * Tests correctness of topMatch() for a few simple cases
+	 */
+	@Test(timeout = 10000)
+	public void testTopMatch() {
+		Autocompletor test = getInstance();
+		String[] queries = { "", "a", "ap", "b", "ba", "c", "ca", "cat", "d", " " };
+		String[] results = { "car", "ape", "ape", "bee", "bat", "car", "car", "cat", "", "" };
+		for (int i = 0; i < queries.length; i++) {
+			assertEquals("wrong top match for " + queries[i], results[i], test.topMatch(queries[i]));
+		}
+	}
+
+	/**
+	 * Tests correctness of topKMatches() for a few simple cases
+	 */
+	@Test(timeout = 10000)
+	public void testTopKMatches() {
+		Autocompletor test = getInstance();
+		String[] queries = { "", "", "", "", "a", "ap", "b", "ba", "d" };
+		int[] ks = { 8, 1, 2, 3, 1, 1, 2, 2, 100 };
+		String[][] results = { { "car", "ape", "bee", "app", "bat", "ban", "cat" }, { "car" }, { "car", "ape" },
+				{ "car", "ape", "bee" }, { "ape" }, { "ape" }, { "bee", "bat" }, { "bat", "ban" }, {} };
+		for (int i = 0; i < queries.length; i++) {
+			assertArrayEquals("wrong top matches for " + queries[i] + " " + ks[i], results[i],
+					iterToArr(test.topMatches(queries[i], ks[i])));
+		}
+	}
+
+	/**
+	 * Tests weightOf() for words, prefixes that are not words, and misses
+	 */
+	@Test(timeout = 10000)
+	public void testWeightOf() {
+		Autocompletor test = getInstance();
+		for (int i = 0; i < names.length; i++)
+			assertEquals(weights[i], test.weightOf(names[i]), 1E-9);
+		assertEquals(0.0, test.weightOf("ca"), 1E-9);
+		assertEquals(0.0, test.weightOf("dog"), 1E-9);
+	}
+
+	/**
+	 * Compares against TrieAutocomplete on random words with distinct weights,
+	 * and checks that both tries have the same number of nodes.
+	 */
+	@Test(timeout = 10000)
+	public void testMatchesTrie() {
+		Random rng = new Random(1234);
+		String[] words = new String[2000];
+		double[] wts = new double[words.length];
+		for (int i = 0; i < words.length; i++) {
+			StringBuilder sb = new StringBuilder();
+			int len = 1 + rng.nextInt(6);
+			for (int j = 0; j < len; j++)
+				sb.append((char) ('a' + rng.nextInt(4)));
+			words[i] = sb.toString();
+			wts[i] = i + 1;
+		}
+		TrieAutocomplete trie = new TrieAutocomplete(words, wts);
+		CompactTrieAutocomplete compact = (CompactTrieAutocomplete) getInstance(words, wts);
+		assertEquals(AutocompletorBenchmark.countNodes(trie.myRoot), compact.nodeCount());
+		String[] queries = { "", "a", "b", "ab", "dd", "cab", "abcd", "e" };
+		for (String q : queries) {
+			assertEquals("top match for " + q, trie.topMatch(q), compact.topMatch(q));
+			for (int k = 1; k <= 20; k += 6)
+				assertArrayEquals("top matches for " + q + " " + k, iterToArr(trie.topMatches(q, k)),
+						iterToArr(compact.topMatches(q, k)));
+		}
+	}
+}
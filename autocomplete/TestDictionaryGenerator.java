@@ -0,0 +1,71 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class TestDictionaryGenerator {
+
+	private String generate(DictionaryGenerator generator, int count) throws IOException {
+		StringWriter out = new StringWriter();
+		generator.write(out, count);
+		return out.toString();
+	}
+
+	/**
+	 * Tests that the same seed and settings give the same file, and another
+	 * seed a different one
+	 */
+	@Test(timeout = 10000)
+	public void testDeterministic() throws IOException {
+		assertEquals(generate(new DictionaryGenerator(7), 5000), generate(new DictionaryGenerator(7), 5000));
+		assertFalse(generate(new DictionaryGenerator(7), 5000).equals(generate(new DictionaryGenerator(8), 5000)));
+	}
+
+	/**
+	 * Tests that the file loads, with distinct terms of the requested
+	 * alphabet and lengths, and Zipfian weights
+	 */
+	@Test(timeout = 10000)
+	public void testLoad() throws IOException {
+		int count = 20000;
+		DictionaryGenerator generator = new DictionaryGenerator(42);
+		generator.setAlphabet("xyz");
+		generator.setTermLength(10, 12, 16);
+		generator.setSharedPrefixes(50, 0.8);
+		generator.setZipfExponent(1);
+		File file = File.createTempFile("generated", ".txt");
+		file.deleteOnExit();
+		generator.write(file, count);
+		TermFileLoader data = new TermFileLoader(file, false);
+		String[] terms = data.getTerms();
+		assertEquals(count, terms.length);
+		assertEquals(count, new HashSet<String>(Arrays.asList(terms)).size());
+		for (String term : terms) {
+			assertTrue(term, term.length() >= 10 && term.length() <= 16);
+			assertTrue(term, term.matches("[xyz]+"));
+		}
+		double[] weights = data.getWeights().clone();
+		Arrays.sort(weights);
+		for (int rank = 1; rank <= count; rank *= 10)
+			assertEquals("weight of rank " + rank, 1E12 / rank, weights[count - rank], 1);
+	}
+
+	/**
+	 * Tests that shared stems give many terms a common prefix
+	 */
+	@Test(timeout = 10000)
+	public void testSharedPrefixes() throws IOException {
+		DictionaryGenerator generator = new DictionaryGenerator(3);
+		generator.setSharedPrefixes(1, 1);
+		generator.setTermLength(8, 10, 12);
+		String[] lines = generate(generator, 1000).split("\n");
+		String stem = lines[1].substring(lines[1].indexOf('\t') + 1, lines[1].indexOf('\t') + 3);
+		for (int i = 2; i < lines.length; i++)
+			assertTrue(lines[i], lines[i].contains("\t" + stem));
+	}
+}
@@ -0,0 +1,186 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestFSTAutocomplete {
+
+	String[] names = { "ape", "app", "ban", "bat", "bee", "car", "cat" };
+	double[] weights = { 6, 4, 2, 3, 5, 7, 1 };
+
+	public Autocompletor getInstance() {
+		return getInstance(names, weights);
+	}
+
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		return new FSTAutocomplete(names, weights);
+	}
+
+	private String[] iterToArr(Iterable<String> it) {
+		ArrayList<String> list = new ArrayList<String>();
+		for (String s : it)
+			list.add(s);
+		return list.toArray(new String[0]);
+	}
+
+	/**
+	 * Tests correctness of topMatch() for a few simple cases
+	 */
+	@Test(timeout = 10000)
+	public void testTopMatch() {
+		Autocompletor test = getInstance();
+		String[] queries = { "", "a", "ap", "b", "ba", "c", "ca", "cat", "d", " " };
+		String[] results = { "car", "ape", "ape", "bee", "bat", "car", "car", "cat", "", "" };
+		for (int i = 0; i < queries.length; i++) {
+			assertEquals("wrong top match for " + queries[i], results[i], test.topMatch(queries[i]));
+		}
+	}
+
+	/**
+	 * Tests correctness of topKMatches() for a few simple cases
+	 */
+	@Test(timeout = 10000)
+	public void testTopKMatches() {
+		Autocompletor test = getInstance();
+		String[] queries = { "", "", "", "", "a", "ap", "b", "ba", "d" };
+		int[] ks = { 8, 1, 2, 3, 1, 1, 2, 2, 100 };
+		String[][] results = { { "car", "ape", "bee", "app", "bat", "ban", "cat" }, { "car" }, { "car", "ape" },
+				{ "car", "ape", "bee" }, { "ape" }, { "ape" }, { "bee", "bat" }, { "bat", "ban" }, {} };
+		for (int i = 0; i < queries.length; i++) {
+			assertArrayEquals("wrong top matches for " + queries[i] + " " + ks[i], results[i],
+					iterToArr(test.topMatches(queries[i], ks[i])));
+		}
+	}
+
+	/**
+	 * Tests weightOf() for words, prefixes that are not words, and misses
+	 */
+	@Test(timeout = 10000)
+	public void testWeightOf() {
+		Autocompletor test = getInstance();
+		for (int i = 0; i < names.length; i++)
+			assertEquals(weights[i], test.weightOf(names[i]), 1E-9);
+		assertEquals(0.0, test.weightOf("ca"), 1E-9);
+		assertEquals(0.0, test.weightOf("dog"), 1E-9);
+	}
+
+	/**
+	 * Compares against TrieAutocomplete on random words with distinct weights,
+	 * built from a few stems and suffixes so that the FST merges states
+	 */
+	@Test(timeout = 10000)
+	public void testMatchesTrie() {
+		Random rng = new Random(1234);
+		String[] suffixes = { "", "ing", "ed", "s", "tion", " city" };
+		String[] words = new String[2000];
+		double[] wts = new double[words.length];
+		for (int i = 0; i < words.length; i++) {
+			StringBuilder sb = new StringBuilder();
+			int len = 1 + rng.nextInt(6);
+			for (int j = 0; j < len; j++)
+				sb.append((char) ('a' + rng.nextInt(4)));
+			words[i] = sb.append(suffixes[rng.nextInt(suffixes.length)]).toString();
+			wts[i] = i + 1;
+		}
+		TrieAutocomplete trie = new TrieAutocomplete(words, wts);
+		Autocompletor fst = getInstance(words, wts);
+		String[] queries = { "", "a", "b", "ab", "dd", "cab", "abcd", "e", "ab ", "abt" };
+		for (String q : queries) {
+			assertEquals("top match for " + q, trie.topMatch(q), fst.topMatch(q));
+			for (int k = 1; k <= 20; k += 6)
+				assertArrayEquals("top matches for " + q + " " + k, iterToArr(trie.topMatches(q, k)),
+						iterToArr(fst.topMatches(q, k)));
+		}
+		for (int i = 0; i < words.length; i += 7)
+			assertEquals(trie.weightOf(words[i]), fst.weightOf(words[i]), 1E-9);
+	}
+
+	/**
+	 * Tests that shared suffixes are stored once, so that the FST is smaller
+	 * than the terms themselves, and that equal weights are handled
+	 */
+	@Test(timeout = 10000)
+	public void testSharedSuffixes() {
+		String[] words = new String[1000];
+		double[] wts = new double[words.length];
+		int chars = 0;
+		for (int i = 0; i < words.length; i++) {
+			words[i] = (char) ('a' + i % 26) + "" + (char) ('a' + i / 26) + " city of testing";
+			wts[i] = i % 10;
+			chars += words[i].length();
+		}
+		FSTAutocomplete fst = (FSTAutocomplete) getInstance(words, wts);
+		assertTrue("FST of " + fst.sizeInBytes() + " bytes", fst.sizeInBytes() < chars / 4);
+		MatchList matches = fst.weightedTopMatches("b", 100);
+		assertEquals(39, matches.size());
+		for (int i = 0; i < matches.size(); i++) {
+			assertTrue(matches.getTerm(i), matches.getTerm(i).startsWith("b"));
+			assertEquals(fst.weightOf(matches.getTerm(i)), matches.getWeight(i), 1E-9);
+			if (i > 0)
+				assertTrue(matches.getWeight(i) <= matches.getWeight(i - 1));
+		}
+	}
+
+	/**
+	 * Tests that an FST read back from toByteArray answers the same
+	 */
+	@Test(timeout = 10000)
+	public void testSerialization() {
+		FSTAutocomplete fst = (FSTAutocomplete) getInstance();
+		FSTAutocomplete copy = new FSTAutocomplete(fst.toByteArray());
+		for (String q : new String[] { "", "a", "ba", "cat", "d" }) {
+			assertEquals(fst.topMatch(q), copy.topMatch(q));
+			assertArrayEquals(iterToArr(fst.topMatches(q, 5)), iterToArr(copy.topMatches(q, 5)));
+		}
+		for (String name : names)
+			assertEquals(fst.weightOf(name), copy.weightOf(name), 1E-9);
+	}
+
+	/**
+	 * Tests that bytes that are not an FST are rejected
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadBytes() {
+		new FSTAutocomplete(new byte[32]);
+	}
+
+	/**
+	 * Tests that a truncated or padded FST, or one with just a header, is
+	 * rejected
+	 */
+	@Test(timeout = 10000)
+	public void testTruncatedBytes() {
+		byte[] bytes = ((FSTAutocomplete) getInstance()).toByteArray();
+		byte[][] bad = { Arrays.copyOf(bytes, bytes.length - 5), Arrays.copyOf(bytes, bytes.length + 1),
+				Arrays.copyOf(bytes, 20) };
+		for (byte[] b : bad) {
+			try {
+				new FSTAutocomplete(b);
+				fail("accepted " + b.length + " of " + bytes.length + " bytes");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	/**
+	 * Tests the empty word, which has no node, and an empty dictionary
+	 */
+	@Test(timeout = 10000)
+	public void testEmptyWord() {
+		Autocompletor test = getInstance(new String[] { "", "a", "ab" }, new double[] { 5, 3, 9 });
+		assertEquals("ab", test.topMatch(""));
+		assertEquals(5, test.weightOf(""), 1E-9);
+		assertArrayEquals(new String[] { "ab", "", "a" }, iterToArr(test.topMatches("", 5)));
+		test = getInstance(new String[] { "" }, new double[] { 5 });
+		assertEquals("", test.topMatch(""));
+		assertArrayEquals(new String[] { "" }, iterToArr(test.topMatches("", 5)));
+		assertArrayEquals(new String[0], iterToArr(test.topMatches("a", 5)));
+		test = getInstance(new String[0], new double[0]);
+		assertEquals("", test.topMatch("a"));
+		assertArrayEquals(new String[0], iterToArr(test.topMatches("", 5)));
+	}
+}
@@ -0,0 +1,123 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestInfixAutocomplete {
+
+	String[] names = { "ape", "app", "ban", "bat", "bee", "car", "cat" };
+	double[] weights = { 6, 4, 2, 3, 5, 7, 1 };
+
+	public Autocompletor getInstance() {
+		return getInstance(names, weights);
+	}
+
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		return new InfixAutocomplete(names, weights);
+	}
+
+	private String[] iterToArr(Iterable<String> it) {
+		ArrayList<String> list = new ArrayList<String>();
+		for (String s : it)
+			list.add(s);
+		return list.toArray(new String[0]);
+	}
+
+	/**
+	 * Tests correctness of topMatch() for a few simple cases
+	 */
+	@Test(timeout = 10000)
+	public void testTopMatch() {
+		Autocompletor test = getInstance();
+		String[] queries = { "", "a", "ap", "t", "at", "e", "ee", "n", "pe", "d", " " };
+		String[] results = { "car", "car", "ape", "bat", "bat", "ape", "bee", "ban", "ape", "", "" };
+		for (int i = 0; i < queries.length; i++) {
+			assertEquals("wrong top match for " + queries[i], results[i], test.topMatch(queries[i]));
+		}
+	}
+
+	/**
+	 * Tests correctness of topKMatches() for a few simple cases
+	 */
+	@Test(timeout = 10000)
+	public void testTopKMatches() {
+		Autocompletor test = getInstance();
+		String[] queries = { "", "", "a", "a", "p", "t", "e", "ca", "d" };
+		int[] ks = { 8, 2, 100, 3, 5, 5, 1, 2, 100 };
+		String[][] results = { { "car", "ape", "bee", "app", "bat", "ban", "cat" }, { "car", "ape" },
+				{ "car", "ape", "app", "bat", "ban", "cat" }, { "car", "ape", "app" }, { "ape", "app" },
+				{ "bat", "cat" }, { "ape" }, { "car", "cat" }, {} };
+		for (int i = 0; i < queries.length; i++) {
+			assertArrayEquals("wrong top matches for " + queries[i] + " " + ks[i], results[i],
+					iterToArr(test.topMatches(queries[i], ks[i])));
+		}
+		assertEquals(0, test.weightedTopMatches("a", 0).size());
+	}
+
+	/**
+	 * Tests weightOf() for words, infixes that are not words, and misses
+	 */
+	@Test(timeout = 10000)
+	public void testWeightOf() {
+		Autocompletor test = getInstance();
+		for (int i = 0; i < names.length; i++)
+			assertEquals(weights[i], test.weightOf(names[i]), 1E-9);
+		assertEquals(0.0, test.weightOf("at"), 1E-9);
+		assertEquals(0.0, test.weightOf("dog"), 1E-9);
+	}
+
+	/**
+	 * Tests words that contain the infix more than once, which must be
+	 * returned only once, the empty word, and an empty dictionary
+	 */
+	@Test(timeout = 10000)
+	public void testRepeatsAndEmpty() {
+		Autocompletor test = getInstance(new String[] { "banana", "ananas", "nab", "" },
+				new double[] { 9, 8, 7, 1 });
+		assertArrayEquals(new String[] { "banana", "ananas" }, iterToArr(test.topMatches("ana", 5)));
+		assertArrayEquals(new String[] { "banana", "ananas", "nab" }, iterToArr(test.topMatches("a", 5)));
+		assertArrayEquals(new String[] { "banana", "ananas", "nab", "" }, iterToArr(test.topMatches("", 5)));
+		assertEquals(1, test.weightOf(""), 1E-9);
+		test = getInstance(new String[0], new double[0]);
+		assertEquals("", test.topMatch("a"));
+		assertArrayEquals(new String[0], iterToArr(test.topMatches("", 5)));
+	}
+
+	/**
+	 * Compares against filtering every word with String.contains, on random
+	 * words with distinct weights over a small alphabet so that infixes repeat
+	 */
+	@Test(timeout = 10000)
+	public void testMatchesScan() {
+		Random rng = new Random(1234);
+		String[] words = new String[2000];
+		double[] wts = new double[words.length];
+		for (int i = 0; i < words.length; i++) {
+			StringBuilder sb = new StringBuilder();
+			int len = 1 + rng.nextInt(8);
+			for (int j = 0; j < len; j++)
+				sb.append((char) ('a' + rng.nextInt(3)));
+			words[i] = sb.toString();
+			wts[i] = i + 1;
+		}
+		Term[] sorted = Term.sortedDistinct(words, wts);
+		Arrays.sort(sorted, new Term.ReverseWeightOrder());
+		Autocompletor test = getInstance(words, wts);
+		String[] queries = { "", "a", "c", "ab", "ba", "aa", "cab", "abca", "bbbb", "d" };
+		for (String q : queries) {
+			ArrayList<String> expected = new ArrayList<String>();
+			for (Term t : sorted) {
+				if (t.getWord().contains(q))
+					expected.add(t.getWord());
+			}
+			assertEquals("top match for " + q, expected.isEmpty() ? "" : expected.get(0), test.topMatch(q));
+			for (int k = 1; k <= 40; k += 13) {
+				String[] top = expected.subList(0, Math.min(k, expected.size())).toArray(new String[0]);
+				assertArrayEquals("top matches for " + q + " " + k, top, iterToArr(test.topMatches(q, k)));
+			}
+		}
+	}
+}
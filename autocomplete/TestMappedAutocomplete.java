@@ -0,0 +1,99 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+public class TestMappedAutocomplete {
+
+	String[] names = { "ape", "app", "ban", "bat", "bee", "car", "cat" };
+	double[] weights = { 6, 4, 2, 3, 5, 7, 1 };
+
+	private String[] iterToArr(Iterable<String> it) {
+		ArrayList<String> list = new ArrayList<String>();
+		for (String s : it)
+			list.add(s);
+		return list.toArray(new String[0]);
+	}
+
+	/**
+	 * Checks that an index answers every query the same way as the
+	 * Autocompletor it was saved from
+	 */
+	private void assertSameAnswers(Autocompletor expected, MappedAutocomplete index) {
+		String[] queries = { "", "a", "ap", "ape", "b", "ba", "be", "c", "ca", "cat", "cats", "d", " " };
+		for (String query : queries) {
+			assertEquals("wrong top match for " + query, expected.topMatch(query), index.topMatch(query));
+			for (int k = 0; k <= 8; k += 2)
+				assertArrayEquals("wrong top matches for " + query + " " + k,
+						iterToArr(expected.topMatches(query, k)), iterToArr(index.topMatches(query, k)));
+		}
+		for (int i = 0; i < names.length; i++)
+			assertEquals("wrong weight for " + names[i], weights[i], index.weightOf(names[i]), 1E-9);
+		assertEquals(0.0, index.weightOf(""), 1E-9);
+		assertEquals(0.0, index.weightOf("ca"), 1E-9);
+		assertEquals(0.0, index.weightOf("cats"), 1E-9);
+	}
+
+	/**
+	 * Tests an index saved from a BinarySearchAutocomplete
+	 */
+	@Test(timeout = 10000)
+	public void testSaveBinarySearch() throws IOException {
+		File file = File.createTempFile("test", MappedAutocomplete.SUFFIX);
+		file.deleteOnExit();
+		BinarySearchAutocomplete auto = new BinarySearchAutocomplete(names, weights);
+		MappedAutocomplete.save(auto, file);
+		MappedAutocomplete index = new MappedAutocomplete(file);
+		assertEquals(names.length, index.size());
+		assertSameAnswers(auto, index);
+		index.close();
+	}
+
+	/**
+	 * Tests that repeated words in a BinarySearchAutocomplete are saved once,
+	 * with their last weight
+	 */
+	@Test(timeout = 10000)
+	public void testSaveBinarySearchRepeats() throws IOException {
+		File file = File.createTempFile("test", MappedAutocomplete.SUFFIX);
+		file.deleteOnExit();
+		MappedAutocomplete.save(new BinarySearchAutocomplete(new String[] { "bat", "ape", "bat", "bat", "ape" },
+				new double[] { 1, 2, 3, 4, 5 }), file);
+		MappedAutocomplete index = new MappedAutocomplete(file);
+		assertEquals(2, index.size());
+		assertEquals(5, index.weightOf("ape"), 1E-9);
+		assertEquals(4, index.weightOf("bat"), 1E-9);
+		assertArrayEquals(new String[] { "ape", "bat" }, iterToArr(index.topMatches("", 5)));
+		index.close();
+	}
+
+	/**
+	 * Tests an index saved from a TrieAutocomplete
+	 */
+	@Test(timeout = 10000)
+	public void testSaveTrie() throws IOException {
+		File file = File.createTempFile("test", MappedAutocomplete.SUFFIX);
+		file.deleteOnExit();
+		BinarySearchAutocomplete expected = new BinarySearchAutocomplete(names, weights);
+		MappedAutocomplete.save(new TrieAutocomplete(names, weights), file);
+		MappedAutocomplete index = new MappedAutocomplete(file);
+		assertSameAnswers(expected, index);
+		for (int i = 0; i < names.length; i++)
+			assertEquals(names[i], index.termAt(i));
+		index.close();
+	}
+
+	/**
+	 * Tests that a file that is not an index is rejected
+	 */
+	@Test(expected = IOException.class)
+	public void testNotAnIndex() throws IOException {
+		File file = File.createTempFile("test", ".txt");
+		file.deleteOnExit();
+		java.nio.file.Files.write(file.toPath(), "7\n6\tape\n".getBytes("UTF-8"));
+		new MappedAutocomplete(file);
+	}
+}
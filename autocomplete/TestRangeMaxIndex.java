@@ -0,0 +1,45 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestRangeMaxIndex {
+	private Random rng = new Random(1234);
+
+	private int scanArgMax(double[] values, int lo, int hi) {
+		int best = lo;
+		for (int i = lo; i <= hi; i++)
+			if (values[i] > values[best])
+				best = i;
+		return best;
+	}
+
+	/**
+	 * Compares argMax against a linear scan for random ranges, including
+	 * ranges inside one block and ranges spanning many blocks
+	 */
+	@Test(timeout = 10000)
+	public void testArgMax() {
+		for (int n : new int[] { 1, 31, 32, 33, 100, 1000, 5000 }) {
+			double[] values = new double[n];
+			for (int i = 0; i < n; i++)
+				values[i] = rng.nextInt(100);
+			RangeMaxIndex index = new RangeMaxIndex(values);
+			for (int trial = 0; trial < 1000; trial++) {
+				int lo = rng.nextInt(n);
+				int hi = lo + rng.nextInt(n - lo);
+				assertEquals("argMax(" + lo + ", " + hi + ") of " + n, scanArgMax(values, lo, hi),
+						index.argMax(lo, hi));
+			}
+		}
+	}
+
+	/**
+	 * Tests that an empty range is rejected
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyRange() {
+		new RangeMaxIndex(new double[] { 1, 2, 3 }).argMax(2, 1);
+	}
+}
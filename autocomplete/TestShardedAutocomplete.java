@@ -0,0 +1,79 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class TestShardedAutocomplete {
+
+	private String[] iterToArr(Iterable<String> it) {
+		ArrayList<String> list = new ArrayList<String>();
+		for (String s : it)
+			list.add(s);
+		return list.toArray(new String[0]);
+	}
+
+	/**
+	 * Compares sharded tries and binary search autocompletors of several
+	 * shard counts, including more shards than words, against unsharded ones
+	 * on random words with distinct weights, some of them repeated
+	 */
+	@Test(timeout = 10000)
+	public void testMatchesUnsharded() {
+		Random rng = new Random(1234);
+		String[] words = new String[3000];
+		double[] wts = new double[words.length];
+		for (int i = 0; i < words.length; i++) {
+			StringBuilder sb = new StringBuilder();
+			int len = 1 + rng.nextInt(6);
+			for (int j = 0; j < len; j++)
+				sb.append((char) ('a' + rng.nextInt(4)));
+			words[i] = sb.toString();
+			wts[i] = i + 1;
+		}
+		ForkJoinPool pool = new ForkJoinPool(3);
+		String[] queries = { "", "a", "b", "ab", "dd", "cab", "abcd", "e" };
+		ShardedAutocomplete.Factory[] factories = { TrieAutocomplete::new, BinarySearchAutocomplete::new };
+		for (ShardedAutocomplete.Factory factory : factories) {
+			Autocompletor expected = factory.build(words, wts);
+			for (int shards : new int[] { 1, 3, 8, 5000 }) {
+				ShardedAutocomplete test = new ShardedAutocomplete(words, wts, shards, factory, pool);
+				assertEquals(shards, test.getShardCount());
+				for (String q : queries) {
+					assertEquals("top match for " + q, expected.topMatch(q), test.topMatch(q));
+					for (int k = 0; k <= 20; k += 5)
+						assertArrayEquals("top matches for " + q + " " + k + " with " + shards + " shards",
+								iterToArr(expected.topMatches(q, k)), iterToArr(test.topMatches(q, k)));
+				}
+				for (int i = 0; i < words.length; i += 11)
+					assertEquals(expected.weightOf(words[i]), test.weightOf(words[i]), 1E-9);
+				assertEquals(0.0, test.weightOf("x"), 1E-9);
+			}
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Tests that the weights of the merged matches are in descending order
+	 */
+	@Test(timeout = 10000)
+	public void testWeightedTopMatches() {
+		String[] names = { "ape", "app", "ban", "bat", "bee", "car", "cat" };
+		double[] weights = { 6, 4, 2, 3, 5, 7, 1 };
+		ForkJoinPool pool = new ForkJoinPool(2);
+		MatchList matches = new ShardedAutocomplete(names, weights, 4, BinarySearchAutocomplete::new, pool)
+				.weightedTopMatches("", 5);
+		assertArrayEquals(new String[] { "car", "ape", "bee", "app", "bat" }, iterToArr(matches));
+		double[] expected = { 7, 6, 5, 4, 3 };
+		for (int i = 0; i < expected.length; i++)
+			assertEquals(expected[i], matches.getWeight(i), 1E-9);
+		pool.shutdown();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoShards() {
+		new ShardedAutocomplete(new String[0], new double[0], 0, TrieAutocomplete::new, ForkJoinPool.commonPool());
+	}
+}
@@ -0,0 +1,130 @@
+import static org.junit.Assert.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class TestSnapshotAutocomplete {
+
+	String[] names = { "ape", "app", "ban", "bat", "bee", "car", "cat" };
+	double[] weights = { 6, 4, 2, 3, 5, 7, 1 };
+
+	/**
+	 * Autocompletor that records whether it has been closed and fails any
+	 * query made after that
+	 */
+	private static class ClosingAutocomplete extends BinarySearchAutocomplete implements Closeable {
+		volatile boolean closed;
+
+		ClosingAutocomplete(String[] terms, double[] weights) {
+			super(terms, weights);
+		}
+
+		public void close() {
+			closed = true;
+		}
+
+		@Override
+		public String topMatch(String prefix) {
+			assertFalse("query on a closed snapshot", closed);
+			return super.topMatch(prefix);
+		}
+	}
+
+	private String[] iterToArr(Iterable<String> it) {
+		ArrayList<String> list = new ArrayList<String>();
+		for (String s : it)
+			list.add(s);
+		return list.toArray(new String[0]);
+	}
+
+	/**
+	 * Tests that queries go to the latest snapshot and that a swapped-out
+	 * snapshot is closed
+	 */
+	@Test(timeout = 10000)
+	public void testSwap() {
+		ClosingAutocomplete first = new ClosingAutocomplete(names, weights);
+		SnapshotAutocomplete auto = new SnapshotAutocomplete(first);
+		assertEquals("car", auto.topMatch(""));
+		assertArrayEquals(new String[] { "bee", "bat" }, iterToArr(auto.topMatches("b", 2)));
+		assertEquals(5, auto.weightOf("bee"), 1E-9);
+
+		ClosingAutocomplete second = new ClosingAutocomplete(names, new double[] { 6, 4, 2, 3, 5, 7, 10 });
+		auto.swap(second);
+		assertTrue("retired snapshot not closed", first.closed);
+		assertEquals("cat", auto.topMatch(""));
+		assertEquals(1, auto.getGeneration());
+		auto.close();
+		assertTrue("last snapshot not closed", second.closed);
+	}
+
+	/**
+	 * Tests that reload swaps in what the Loader builds, and that a failed
+	 * reload leaves the current snapshot in place
+	 */
+	@Test(timeout = 10000)
+	public void testReload() throws InterruptedException, ExecutionException {
+		AtomicBoolean fail = new AtomicBoolean();
+		SnapshotAutocomplete auto = new SnapshotAutocomplete(new BinarySearchAutocomplete(names, weights), () -> {
+			if (fail.get())
+				throw new IOException("no dictionary");
+			return new TrieAutocomplete(new String[] { "dog" }, new double[] { 1 });
+		});
+		auto.reload().get();
+		assertEquals("dog", auto.topMatch(""));
+		fail.set(true);
+		try {
+			auto.reload().get();
+			fail("failed reload not reported");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		assertEquals("dog", auto.topMatch(""));
+		assertEquals(1, auto.getGeneration());
+		auto.close();
+	}
+
+	/**
+	 * Tests that a snapshot in use is not closed until its queries finish,
+	 * while other threads keep swapping snapshots in
+	 */
+	@Test(timeout = 20000)
+	public void testConcurrentSwaps() throws InterruptedException {
+		SnapshotAutocomplete auto = new SnapshotAutocomplete(new ClosingAutocomplete(names, weights));
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread[] readers = new Thread[4];
+		for (int t = 0; t < readers.length; t++) {
+			readers[t] = new Thread(() -> {
+				try {
+					for (int i = 0; i < 20000; i++)
+						assertEquals("car", auto.topMatch("c"));
+				} catch (Throwable e) {
+					failure.set(e);
+				}
+			});
+			readers[t].start();
+		}
+		for (int i = 0; i < 2000; i++)
+			auto.swap(new ClosingAutocomplete(names, weights));
+		for (Thread reader : readers)
+			reader.join();
+		assertTrue("query failed: " + failure.get(), failure.get() == null);
+		auto.close();
+	}
+
+	/**
+	 * Tests that queries after close are rejected
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testClosed() {
+		SnapshotAutocomplete auto = new SnapshotAutocomplete(new BinarySearchAutocomplete(names, weights));
+		auto.close();
+		auto.topMatch("a");
+	}
+}
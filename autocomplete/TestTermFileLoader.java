@@ -0,0 +1,52 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class TestTermFileLoader {
+
+	private File write(String contents) throws IOException {
+		File file = File.createTempFile("terms", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), contents.getBytes("UTF-8"));
+		return file;
+	}
+
+	/**
+	 * Tests parsing of whole and fractional weights, spaces around weights,
+	 * Windows line endings, blank lines, multi-byte characters and lines past
+	 * the declared count, with chunks small enough to split lines
+	 */
+	@Test(timeout = 10000)
+	public void testLoad() throws IOException {
+		File file = write("4\n  5627187200\tthe\r\n\n12.5\tcaf\u00e9 au lait\n 3 \tNew York\n7\tfour\n8\textra\n");
+		String[] terms = { "the", "caf\u00e9 au lait", "New York", "four" };
+		double[] weights = { 5627187200.0, 12.5, 3, 7 };
+		for (int chunkSize : new int[] { 1, 5, 16, 1 << 20 }) {
+			TermFileLoader data = new TermFileLoader(file, false, chunkSize);
+			assertArrayEquals("terms with chunk size " + chunkSize, terms, data.getTerms());
+			for (int i = 0; i < weights.length; i++)
+				assertEquals("weight with chunk size " + chunkSize, weights[i], data.getWeights()[i], 1E-9);
+		}
+		assertEquals("new york", new TermFileLoader(file, true).getTerms()[2]);
+	}
+
+	/**
+	 * Tests that a file with fewer terms than it declares is rejected
+	 */
+	@Test(expected = IOException.class)
+	public void testTooFewTerms() throws IOException {
+		new TermFileLoader(write("3\n1\tone\n2\ttwo\n"), false);
+	}
+
+	/**
+	 * Tests that a line without a tab is rejected
+	 */
+	@Test(expected = IOException.class)
+	public void testNoTab() throws IOException {
+		new TermFileLoader(write("2\n1\tone\n2 two\n"), false);
+	}
+}
@@ -0,0 +1,132 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestTokenAutocomplete {
+
+	String[] names = { "new york city", "york", "yorkshire pudding", "new jersey", "old new york", "big apple",
+			"apple pie" };
+	double[] weights = { 9, 7, 3, 5, 2, 6, 4 };
+
+	public Autocompletor getInstance() {
+		return getInstance(names, weights);
+	}
+
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		return new TokenAutocomplete(names, weights);
+	}
+
+	private String[] iterToArr(Iterable<String> it) {
+		ArrayList<String> list = new ArrayList<String>();
+		for (String s : it)
+			list.add(s);
+		return list.toArray(new String[0]);
+	}
+
+	/**
+	 * Tests correctness of topMatch() for a few simple cases
+	 */
+	@Test(timeout = 10000)
+	public void testTopMatch() {
+		Autocompletor test = getInstance();
+		String[] queries = { "", "y", "york", "yorks", "c", "ci", "a", "pi", "new j", "york c", "p", "ork", "z" };
+		String[] results = { "new york city", "new york city", "new york city", "yorkshire pudding",
+				"new york city", "new york city", "big apple", "apple pie", "new jersey", "new york city",
+				"apple pie", "", "" };
+		for (int i = 0; i < queries.length; i++) {
+			assertEquals("wrong top match for " + queries[i], results[i], test.topMatch(queries[i]));
+		}
+	}
+
+	/**
+	 * Tests correctness of topKMatches() for a few simple cases
+	 */
+	@Test(timeout = 10000)
+	public void testTopKMatches() {
+		Autocompletor test = getInstance();
+		String[] queries = { "", "york", "yo", "n", "new", "new y", "york ", "apple", "ap", "e", "york c" };
+		int[] ks = { 3, 10, 2, 10, 10, 10, 10, 10, 1, 10, 0 };
+		String[][] results = { { "new york city", "york", "big apple" },
+				{ "new york city", "york", "yorkshire pudding", "old new york" }, { "new york city", "york" },
+				{ "new york city", "new jersey", "old new york" }, { "new york city", "new jersey", "old new york" },
+				{ "new york city", "old new york" }, { "new york city" }, { "big apple", "apple pie" },
+				{ "big apple" }, {}, {} };
+		for (int i = 0; i < queries.length; i++) {
+			assertArrayEquals("wrong top matches for " + queries[i] + " " + ks[i], results[i],
+					iterToArr(test.topMatches(queries[i], ks[i])));
+		}
+	}
+
+	/**
+	 * Tests weightOf() for terms, tokens that are not terms, and misses
+	 */
+	@Test(timeout = 10000)
+	public void testWeightOf() {
+		Autocompletor test = getInstance();
+		for (int i = 0; i < names.length; i++)
+			assertEquals(weights[i], test.weightOf(names[i]), 1E-9);
+		assertEquals(0.0, test.weightOf("apple"), 1E-9);
+		assertEquals(0.0, test.weightOf("dog"), 1E-9);
+		test = getInstance(new String[0], new double[0]);
+		assertEquals("", test.topMatch("a"));
+		assertArrayEquals(new String[0], iterToArr(test.topMatches("", 5)));
+		assertEquals(0.0, test.weightOf(""), 1E-9);
+	}
+
+	/**
+	 * Tests that terms whose weights are less than 1 apart are still returned
+	 * in descending weight order
+	 */
+	@Test(timeout = 10000)
+	public void testFractionalWeights() {
+		Autocompletor test = getInstance(new String[] { "xab", "xac", "xad" }, new double[] { 0.2, 0.5, 0.9 });
+		assertEquals("xad", test.topMatch("xa"));
+		assertArrayEquals(new String[] { "xad" }, iterToArr(test.topMatches("xa", 1)));
+		assertArrayEquals(new String[] { "xad", "xac", "xab" }, iterToArr(test.topMatches("x", 3)));
+	}
+
+	/**
+	 * Compares against checking every term, on random terms of one to three
+	 * tokens with distinct fractional weights, including repeated tokens
+	 */
+	@Test(timeout = 10000)
+	public void testMatchesScan() {
+		Random rng = new Random(1234);
+		String[] words = new String[2000];
+		double[] wts = new double[words.length];
+		for (int i = 0; i < words.length; i++) {
+			StringBuilder sb = new StringBuilder();
+			int tokens = 1 + rng.nextInt(3);
+			for (int t = 0; t < tokens; t++) {
+				if (t > 0)
+					sb.append(' ');
+				int len = 1 + rng.nextInt(4);
+				for (int j = 0; j < len; j++)
+					sb.append((char) ('a' + rng.nextInt(3)));
+			}
+			words[i] = sb.toString();
+			wts[i] = rng.nextDouble() * 3;
+		}
+		Term[] sorted = Term.sortedDistinct(words, wts);
+		Arrays.sort(sorted, (a, b) -> Double.compare(b.getWeight(), a.getWeight()));
+		Autocompletor test = getInstance(words, wts);
+		String[] queries = { "", "a", "c", "ab", "ba", "abc", "cab", "a b", "ab c", "b ", "a a", "d" };
+		for (String q : queries) {
+			ArrayList<String> expected = new ArrayList<String>();
+			for (Term t : sorted) {
+				String word = t.getWord();
+				if (word.startsWith(q) || word.contains(" " + q))
+					expected.add(word);
+			}
+			assertEquals("top match for " + q, expected.isEmpty() ? "" : expected.get(0), test.topMatch(q));
+			for (int k = 1; k <= 40; k += 13) {
+				String[] top = expected.subList(0, Math.min(k, expected.size())).toArray(new String[0]);
+				assertArrayEquals("top matches for " + q + " " + k, top, iterToArr(test.topMatches(q, k)));
+			}
+		}
+	}
+}
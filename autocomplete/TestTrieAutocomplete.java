@@ -166,4 +166,217 @@ public class TestTrieAutocomplete {
 					outputs.size() <= 1);
 		}
 	}
+
+	/**
+	 * Tests that a trie with precomputed top matches answers topMatch and
+	 * topMatches (for k up to and beyond the precomputed size) the same way
+	 * as a trie that searches on every call.
+	 */
+	@Test(timeout = 10000)
+	public void testPrecomputedTopMatches() {
+		TrieAutocomplete plain = new TrieAutocomplete(names, weights);
+		TrieAutocomplete precomputed = new TrieAutocomplete(names, weights, 2);
+		String[] queries = {"", "a", "ap", "ape", "b", "ba", "be", "c", "ca", "cat", "d"};
+		for(String query: queries){
+			assertEquals("wrong top match for "+query,
+					plain.topMatch(query), precomputed.topMatch(query));
+			for(int k = 0; k <= 4; k++){
+				assertArrayEquals("wrong top matches for "+query+" "+k,
+						iterToArr(plain.topMatches(query, k)),
+						iterToArr(precomputed.topMatches(query, k)));
+			}
+		}
+	}
+
+	/**
+	 * Tests that a trie bulk-loaded by AutocompleteBuilder, including repeated
+	 * words, answers queries the same way as one built by add
+	 */
+	@Test(timeout = 10000)
+	public void testBuildTrie() {
+		String[] names = {"ape", "app", "ban", "bat", "bee", "car", "cat", "app", ""};
+		double[] weights = {6, 4, 2, 3, 5, 7, 1, 8, 9};
+		TrieAutocomplete added = new TrieAutocomplete(names, weights);
+		TrieAutocomplete built = AutocompleteBuilder.buildTrie(names, weights,
+				java.util.concurrent.ForkJoinPool.commonPool());
+		String[] queries = {"", "a", "ap", "app", "b", "ba", "c", "cat", "d"};
+		for(String query: queries){
+			assertEquals("wrong top match for "+query, added.topMatch(query), built.topMatch(query));
+			assertEquals("wrong weight for "+query, added.weightOf(query), built.weightOf(query), 1E-9);
+			assertArrayEquals("wrong top matches for "+query,
+					iterToArr(added.topMatches(query, 10)), iterToArr(built.topMatches(query, 10)));
+		}
+		assertEquals(AutocompletorBenchmark.countNodes(added.myRoot),
+				AutocompletorBenchmark.countNodes(built.myRoot));
+	}
+
+	/**
+	 * Tests that a trie changed by random inserts, weight updates and
+	 * removals, with and without precomputed top matches, answers queries
+	 * the same way as a trie built from scratch from the final words
+	 */
+	@Test(timeout = 10000)
+	public void testUpdates() {
+		java.util.Random random = new java.util.Random(201);
+		java.util.TreeMap<String, Double> words = new java.util.TreeMap<String, Double>();
+		for (int topK : new int[] {0, 3}) {
+			words.clear();
+			TrieAutocomplete auto = new TrieAutocomplete(new String[0], new double[0], topK);
+			for (int op = 0; op < 2000; op++) {
+				StringBuilder sb = new StringBuilder();
+				for (int len = random.nextInt(5); len > 0; len--)
+					sb.append((char) ('a' + random.nextInt(3)));
+				String word = sb.toString();
+				// distinct weights, so ties cannot reorder results
+				double weight = random.nextInt(1000000) + op / 10000.0;
+				switch (random.nextInt(3)) {
+				case 0:
+					auto.insert(word, weight);
+					words.put(word, weight);
+					break;
+				case 1:
+					assertEquals(words.containsKey(word), auto.updateWeight(word, weight));
+					if (words.containsKey(word))
+						words.put(word, weight);
+					break;
+				default:
+					assertEquals(words.containsKey(word), auto.remove(word));
+					words.remove(word);
+				}
+				if (op % 100 != 99)
+					continue;
+				String[] names = words.keySet().toArray(new String[0]);
+				double[] weights = new double[names.length];
+				for (int i = 0; i < names.length; i++)
+					weights[i] = words.get(names[i]);
+				TrieAutocomplete fresh = new TrieAutocomplete(names, weights);
+				assertEquals("extra nodes left behind", AutocompletorBenchmark.countNodes(fresh.myRoot),
+						AutocompletorBenchmark.countNodes(auto.myRoot));
+				for (String query : new String[] {"", "a", "b", "c", "ab", "ca", "bbc", "abca"}) {
+					assertEquals("wrong top match for " + query, fresh.topMatch(query), auto.topMatch(query));
+					assertArrayEquals("wrong top matches for " + query,
+							iterToArr(fresh.topMatches(query, 3)), iterToArr(auto.topMatches(query, 3)));
+					assertArrayEquals("wrong top matches for " + query,
+							iterToArr(fresh.topMatches(query, 5)), iterToArr(auto.topMatches(query, 5)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests that a CompletionSession, typed into character by character with
+	 * backspaces and jumps, answers the same as topMatch and topMatches on
+	 * its whole text, with and without precomputed top matches
+	 */
+	@Test(timeout = 10000)
+	public void testSession() {
+		String[] texts = {"", "b", "ba", "bat", "bats", "batsx", "bat", "b", "", "c", "ca", "car", "cx",
+				"c", "ape", "a", "app", "z", "zz", "z", ""};
+		for (int topK : new int[] {0, 2}) {
+			TrieAutocomplete auto = new TrieAutocomplete(names, weights, topK);
+			CompletionSession session = auto.newSession();
+			for (String text : texts) {
+				session.setText(text);
+				assertEquals(text, session.getText());
+				assertEquals("wrong top match for "+text, auto.topMatch(text), session.topMatch());
+				for (int k = 0; k <= 4; k++) {
+					assertArrayEquals("wrong top matches for "+text+" "+k,
+							iterToArr(auto.topMatches(text, k)), iterToArr(session.topMatches(k)));
+				}
+			}
+			session.append('c');
+			session.append('a');
+			session.backspace();
+			assertEquals("car", session.topMatch());
+		}
+	}
+
+	/**
+	 * Tests that weightedTopMatches returns the terms of topMatches with
+	 * their weights, with and without precomputed top matches, and from a
+	 * session
+	 */
+	@Test(timeout = 10000)
+	public void testWeightedTopMatches() {
+		String[] queries = {"", "a", "ap", "b", "ba", "c", "cat", "d"};
+		for (int topK : new int[] {0, 2}) {
+			TrieAutocomplete auto = new TrieAutocomplete(names, weights, topK);
+			CompletionSession session = auto.newSession();
+			for (String query : queries) {
+				session.setText(query);
+				for (int k = 1; k <= 8; k += 3) {
+					String[] terms = iterToArr(auto.topMatches(query, k));
+					MatchList matches = auto.weightedTopMatches(query, k);
+					assertArrayEquals("wrong weighted matches for "+query, terms, iterToArr(matches));
+					assertArrayEquals("wrong session matches for "+query, terms,
+							iterToArr(session.weightedTopMatches(k)));
+					for (int i = 0; i < terms.length; i++) {
+						assertEquals("wrong weight for "+terms[i], auto.weightOf(terms[i]), matches.getWeight(i), 1E-9);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the smallest edit distance between query and any prefix of word
+	 */
+	private int prefixDistance(String word, String query) {
+		int[] row = new int[query.length() + 1];
+		for (int j = 0; j < row.length; j++)
+			row[j] = j;
+		int min = row[query.length()];
+		for (int i = 1; i <= word.length(); i++) {
+			int[] next = new int[row.length];
+			next[0] = i;
+			for (int j = 1; j < row.length; j++) {
+				int cost = word.charAt(i - 1) == query.charAt(j - 1) ? 0 : 1;
+				next[j] = Math.min(Math.min(next[j - 1] + 1, row[j] + 1), row[j - 1] + cost);
+			}
+			row = next;
+			min = Math.min(min, row[query.length()]);
+		}
+		return min;
+	}
+
+	/**
+	 * Tests fuzzy topMatches against checking the edit distance of every
+	 * word, with and without precomputed top matches
+	 */
+	@Test(timeout = 10000)
+	public void testFuzzyTopMatches() {
+		java.util.Random random = new java.util.Random(15);
+		String[] words = new String[300];
+		double[] wordWeights = new double[words.length];
+		for (int i = 0; i < words.length; i++) {
+			StringBuilder sb = new StringBuilder();
+			for (int len = 1 + random.nextInt(6); len > 0; len--)
+				sb.append((char) ('a' + random.nextInt(4)));
+			words[i] = sb.toString() + i;
+			wordWeights[i] = random.nextInt(1000000) + i / 1000.0;
+		}
+		String[] queries = {"", "a", "ab", "bad", "dcba", "abcab", "zz", "cc1"};
+		for (int topK : new int[] {0, 5}) {
+			TrieAutocomplete auto = new TrieAutocomplete(words, wordWeights, topK);
+			for (String query : queries) {
+				for (int maxEdits = 0; maxEdits <= 2; maxEdits++) {
+					ArrayList<Term> expected = new ArrayList<Term>();
+					for (int i = 0; i < words.length; i++) {
+						if (prefixDistance(words[i], query) <= maxEdits)
+							expected.add(new Term(words[i], wordWeights[i]));
+					}
+					java.util.Collections.sort(expected, new Term.ReverseWeightOrder());
+					for (int k : new int[] {0, 1, 3, 10}) {
+						String[] wanted = new String[Math.min(k, expected.size())];
+						for (int i = 0; i < wanted.length; i++)
+							wanted[i] = expected.get(i).getWord();
+						assertArrayEquals("wrong fuzzy matches for "+query+" "+maxEdits+" "+k,
+								wanted, iterToArr(auto.topMatches(query, maxEdits, k)));
+					}
+				}
+				assertArrayEquals("exact fuzzy matches differ for "+query,
+						iterToArr(auto.topMatches(query, 10)), iterToArr(auto.topMatches(query, 0, 10)));
+			}
+		}
+	}
 }
@@ -0,0 +1,374 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Autocompletor that matches a prefix at the start of any word of a term,
+ * not only at the start of the term, so "york" and "york c" find
+ * "new york city" as well as "yorkshire". Words are separated by single
+ * spaces; a prefix that contains a space must match across them, as in
+ * "york c".
+ *
+ * Terms are numbered in descending weight order, so that the heaviest term
+ * is 0. The index is an inverted index from every distinct token (word) to
+ * its posting list: the numbers of the terms that contain it, in
+ * increasing order, i.e. in descending weight order. The tokens that start
+ * with the first word of a prefix form a range of the sorted tokens, and
+ * their posting lists are merged with a heap on the number at the head of
+ * each, so terms come out heaviest first and the merge stops after k
+ * matches. For prefixes of up to SHORT_PREFIX characters, which may be
+ * shared by a large part of the tokens, the merged list is built in
+ * advance. The posting lists are stored in one array, as
+ * CompactTrieAutocomplete stores the children of its nodes.
+ *
+ * Run main with a term file to compare memory and query latency with
+ * BinarySearchAutocomplete and TrieAutocomplete.
+ *
+ */
+public class TokenAutocomplete implements Autocompletor {
+
+	/**
+	 * Token prefixes up to this length have their merged posting lists built
+	 * in advance
+	 */
+	static final int SHORT_PREFIX = 2;
+
+	/**
+	 * The distinct terms and their weights in descending weight order, and
+	 * the numbers of the terms in lexicographic order, for weightOf
+	 */
+	private final String[] myWords;
+	private final double[] myWeights;
+	private final int[] myWordOrder;
+
+	/**
+	 * The distinct tokens in lexicographic order. The posting list of
+	 * myTokens[t] is myPostings[myPostingStart[t]] up to, but not including,
+	 * myPostings[myPostingStart[t + 1]].
+	 */
+	private final String[] myTokens;
+	private final int[] myPostingStart;
+	private final int[] myPostings;
+
+	/**
+	 * Merged posting lists of the prefixes of tokens of length 1 to
+	 * SHORT_PREFIX
+	 */
+	private final HashMap<String, int[]> myShortPostings = new HashMap<String, int[]>();
+
+	/**
+	 * Constructor method for TokenAutocomplete. If a term appears more than
+	 * once, its last weight is used, as in TrieAutocomplete.
+	 *
+	 * @param terms
+	 *            - The terms we will autocomplete from
+	 * @param weights
+	 *            - Their weights, such that terms[i] has weight weights[i].
+	 * @throws NullPointerException
+	 *             if either argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different lengths or a weight is
+	 *             negative
+	 */
+	public TokenAutocomplete(String[] terms, double[] weights) {
+		Term[] sorted = Term.sortedDistinct(terms, weights);
+		int n = sorted.length;
+		myWordOrder = new int[n];
+		Term[] byWeight = sorted.clone();
+		// stable, so equal weights keep lexicographic order; compare the
+		// doubles, since Term.ReverseWeightOrder truncates differences
+		Arrays.sort(byWeight, (a, b) -> Double.compare(b.getWeight(), a.getWeight()));
+		myWords = new String[n];
+		myWeights = new double[n];
+		HashMap<String, Integer> numbers = new HashMap<String, Integer>();
+		for (int i = 0; i < n; i++) {
+			myWords[i] = byWeight[i].getWord();
+			myWeights[i] = byWeight[i].getWeight();
+			numbers.put(myWords[i], i);
+		}
+		for (int i = 0; i < n; i++)
+			myWordOrder[i] = numbers.get(sorted[i].getWord());
+
+		// every (token, term) occurrence, in term order
+		int occurrences = 0;
+		for (String word : myWords)
+			occurrences += tokenCount(word);
+		String[] occurrenceToken = new String[occurrences];
+		int[] occurrenceWord = new int[occurrences];
+		int next = 0;
+		for (int i = 0; i < n; i++) {
+			int start = 0;
+			for (int space; (space = myWords[i].indexOf(' ', start)) >= 0; start = space + 1) {
+				occurrenceToken[next] = myWords[i].substring(start, space);
+				occurrenceWord[next++] = i;
+			}
+			occurrenceToken[next] = myWords[i].substring(start);
+			occurrenceWord[next++] = i;
+		}
+		// stable, so each token's terms stay in increasing order
+		Integer[] order = new Integer[occurrences];
+		for (int i = 0; i < occurrences; i++)
+			order[i] = i;
+		Arrays.sort(order, (a, b) -> occurrenceToken[a].compareTo(occurrenceToken[b]));
+
+		int tokens = 0;
+		for (int j = 0; j < occurrences; j++) {
+			if (j == 0 || !occurrenceToken[order[j]].equals(occurrenceToken[order[j - 1]]))
+				tokens++;
+		}
+		myTokens = new String[tokens];
+		myPostingStart = new int[tokens + 1];
+		int[] postings = new int[occurrences];
+		int t = -1;
+		next = 0;
+		for (int j = 0; j < occurrences; j++) {
+			String token = occurrenceToken[order[j]];
+			int word = occurrenceWord[order[j]];
+			if (t < 0 || !token.equals(myTokens[t])) {
+				myTokens[++t] = token;
+				myPostingStart[t] = next;
+			} else if (postings[next - 1] == word) {
+				// the token appears twice in the term
+				continue;
+			}
+			postings[next++] = word;
+		}
+		myPostingStart[tokens] = next;
+		myPostings = Arrays.copyOf(postings, next);
+
+		for (int length = 1; length <= SHORT_PREFIX; length++) {
+			for (int from = 0, to; from < tokens; from = to) {
+				to = from + 1;
+				if (myTokens[from].length() < length)
+					continue;
+				String prefix = myTokens[from].substring(0, length);
+				while (to < tokens && myTokens[to].startsWith(prefix))
+					to++;
+				int[] merged = Arrays.copyOfRange(myPostings, myPostingStart[from], myPostingStart[to]);
+				Arrays.sort(merged);
+				int size = 0;
+				for (int i = 0; i < merged.length; i++) {
+					if (size == 0 || merged[i] != merged[size - 1])
+						merged[size++] = merged[i];
+				}
+				myShortPostings.put(prefix, Arrays.copyOf(merged, size));
+			}
+		}
+	}
+
+	private static int tokenCount(String word) {
+		int count = 1;
+		for (int i = 0; i < word.length(); i++) {
+			if (word.charAt(i) == ' ')
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the index of the first token that is not smaller than s (if
+	 * after is false), or that is greater than s and does not start with it
+	 * (if after is true)
+	 */
+	private int searchTokens(String s, boolean after) {
+		int low = 0;
+		int high = myTokens.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			String token = myTokens[middle];
+			boolean before = after ? token.startsWith(s) || token.compareTo(s) < 0 : token.compareTo(s) < 0;
+			if (before)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns whether prefix starts at a token of term
+	 */
+	private static boolean matchesToken(String term, String prefix) {
+		for (int start = 0;; start++) {
+			if (term.startsWith(prefix, start))
+				return true;
+			start = term.indexOf(' ', start);
+			if (start < 0)
+				return false;
+		}
+	}
+
+	/**
+	 * Required by the Autocompletor interface. Returns the k terms with the
+	 * largest weight in which a token starts with prefix, in descending
+	 * weight order.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public Iterable<String> topMatches(String prefix, int k) {
+		return weightedTopMatches(prefix, k);
+	}
+
+	/**
+	 * Returns the same matches as topMatches, with their weights.
+	 */
+	@Override
+	public MatchList weightedTopMatches(String prefix, int k) {
+		if (prefix == null)
+			throw new NullPointerException("prefix is null!");
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal value of k:" + k);
+		MatchList ret = new MatchList(Math.min(k, 16));
+		if (prefix.isEmpty()) {
+			for (int i = 0; i < k && i < myWords.length; i++)
+				ret.add(myWords[i], myWeights[i]);
+			return ret;
+		}
+		int space = prefix.indexOf(' ');
+		if (space < 0 && prefix.length() <= SHORT_PREFIX) {
+			int[] list = myShortPostings.get(prefix);
+			for (int i = 0; list != null && i < k && i < list.length; i++)
+				ret.add(myWords[list[i]], myWeights[list[i]]);
+			return ret;
+		}
+		// the tokens starting with the prefix, or if it spans tokens, the
+		// token equal to its first word
+		String first = space < 0 ? prefix : prefix.substring(0, space);
+		int from = searchTokens(first, false);
+		int to = space < 0 ? searchTokens(first, true)
+				: (from < myTokens.length && myTokens[from].equals(first) ? from + 1 : from);
+		if (k == 0 || from == to)
+			return ret;
+		// heads[t - from] is the position in myPostings of the next term of
+		// token t
+		int[] heads = new int[to - from];
+		IndexHeap heap = new IndexHeap(to - from, false);
+		for (int t = from; t < to; t++) {
+			heads[t - from] = myPostingStart[t];
+			heap.add(t - from, myPostings[myPostingStart[t]]);
+		}
+		int last = -1;
+		while (ret.size() < k && !heap.isEmpty()) {
+			int list = heap.remove();
+			int word = myPostings[heads[list]];
+			if (++heads[list] < myPostingStart[from + list + 1])
+				heap.add(list, myPostings[heads[list]]);
+			// a term can be in more than one of the lists
+			if (word == last)
+				continue;
+			last = word;
+			if (space < 0 || matchesToken(myWords[word], prefix))
+				ret.add(myWords[word], myWeights[word]);
+		}
+		return ret;
+	}
+
+	/**
+	 * Given a prefix, returns the largest-weight term in which a token starts
+	 * with that prefix, or an empty string if none exists.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	public String topMatch(String prefix) {
+		MatchList top = weightedTopMatches(prefix, 1);
+		return top.isEmpty() ? "" : top.getTerm(0);
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary,
+	 * return 0.0
+	 */
+	public double weightOf(String term) {
+		int low = 0;
+		int high = myWordOrder.length - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int cmp = myWords[myWordOrder[middle]].compareTo(term);
+			if (cmp == 0)
+				return myWeights[myWordOrder[middle]];
+			if (cmp < 0)
+				low = middle + 1;
+			else
+				high = middle - 1;
+		}
+		return 0.0;
+	}
+
+	/**
+	 * Builds BinarySearchAutocomplete, TrieAutocomplete and TokenAutocomplete
+	 * for a term file and prints the heap each takes and topMatches latency
+	 * percentiles for prefixes of one to four characters from the start of
+	 * random terms. For TokenAutocomplete, it also times prefixes taken from
+	 * the start of a random token of a term, which only it can answer.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("usage: java TokenAutocomplete <termfile>");
+			System.exit(1);
+		}
+		TermFileLoader data = new TermFileLoader(new File(args[0]), true);
+		System.out.println(data);
+		String[] terms = data.getTerms();
+		double[] weights = data.getWeights();
+		Random random = new Random(1234);
+		String[] prefixes = new String[20000];
+		String[] tokenPrefixes = new String[prefixes.length];
+		for (int i = 0; i < prefixes.length; i++) {
+			String term = terms[random.nextInt(terms.length)];
+			int length = 1 + random.nextInt(4);
+			prefixes[i] = term.substring(0, Math.min(length, term.length()));
+			String[] tokens = term.split(" ");
+			String token = tokens[random.nextInt(tokens.length)];
+			tokenPrefixes[i] = token.substring(0, Math.min(length, token.length()));
+		}
+		System.out.printf("%-26s %10s %10s %10s %14s %14s%n", "", "heap(MB)", "p50(us)", "p99(us)", "token p50(us)",
+				"token p99(us)");
+		String[] names = { "BinarySearchAutocomplete", "TrieAutocomplete", "TokenAutocomplete" };
+		for (String name : names)
+			report(name, terms, weights, prefixes, tokenPrefixes);
+	}
+
+	/**
+	 * Builds and times one implementation. The implementation is only
+	 * reachable from here, so it is gone when the next one's heap is measured.
+	 */
+	private static void report(String name, String[] terms, double[] weights, String[] prefixes,
+			String[] tokenPrefixes) {
+		long before = AutocompletorBenchmark.usedMemory();
+		Autocompletor auto = AutocompleteServer.create(name, terms, weights);
+		double heapMb = (AutocompletorBenchmark.usedMemory() - before) / 1E6;
+		long[] latencies = time(auto, prefixes);
+		System.out.printf("%-26s %10.1f %10.1f %10.1f", name, heapMb,
+				AutocompletorBenchmark.percentile(latencies, 50) / 1E3,
+				AutocompletorBenchmark.percentile(latencies, 99) / 1E3);
+		if (auto instanceof TokenAutocomplete) {
+			latencies = time(auto, tokenPrefixes);
+			System.out.printf(" %14.1f %14.1f", AutocompletorBenchmark.percentile(latencies, 50) / 1E3,
+					AutocompletorBenchmark.percentile(latencies, 99) / 1E3);
+		}
+		System.out.println();
+	}
+
+	/**
+	 * Runs the queries once to warm up and once timed, and returns the sorted
+	 * latencies
+	 */
+	private static long[] time(Autocompletor auto, String[] prefixes) {
+		for (String prefix : prefixes)
+			auto.topMatches(prefix, 10);
+		long[] nanos = new long[prefixes.length];
+		for (int i = 0; i < prefixes.length; i++) {
+			long start = System.nanoTime();
+			auto.topMatches(prefixes[i], 10);
+			nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+		return nanos;
+	}
+}
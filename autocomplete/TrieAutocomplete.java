@@ -1,12 +1,8 @@
-import java.io.File;
-import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.Map;
 import java.util.PriorityQueue;
-import java.util.Scanner;
-
-import javax.print.DocFlavor.STRING;
 
 /**
  * General trie/priority queue algorithm for implementing Autocompletor
@@ -21,6 +17,12 @@ public class TrieAutocomplete implements Autocompletor {
 	 */
 	protected Node myRoot;
 
+	/**
+	 * Number of top matches precomputed at every node, or 0 if topMatches
+	 * searches the trie on every call
+	 */
+	protected int myTopK;
+
 	/**
 	 * Constructor method for TrieAutocomplete. Should initialize the trie
 	 * rooted at myRoot, as well as add all nodes necessary to represent the
@@ -48,80 +50,224 @@ public class TrieAutocomplete implements Autocompletor {
 		}
 	}
 
+	/**
+	 * Constructor for a TrieAutocomplete around a trie that has already been
+	 * built, e.g. by AutocompleteBuilder.buildTrie. Every node's
+	 * mySubtreeMaxWeight must already be correct.
+	 */
+	TrieAutocomplete(Node root) {
+		myRoot = root;
+	}
+
+	/**
+	 * Constructor method for a TrieAutocomplete that also stores, at every
+	 * node, the topK heaviest words in that node's subtrie. topMatches(prefix,
+	 * k) for any k <= topK then only walks the prefix and copies a list, so
+	 * short prefixes with huge subtries cost no more than long ones. Uses up
+	 * to topK extra references per node.
+	 * 
+	 * @param terms
+	 *            - The words we will autocomplete from
+	 * @param weights
+	 *            - Their weights, such that terms[i] has weight weights[i].
+	 * @param topK
+	 *            - The number of top matches to precompute at each node
+	 * @throws NullPointerException
+	 *             if either array is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different lengths or topK is
+	 *             negative
+	 */
+	public TrieAutocomplete(String[] terms, double[] weights, int topK) {
+		this(terms, weights);
+		if (topK < 0)
+			throw new IllegalArgumentException("Illegal value of topK:" + topK);
+		precomputeTopMatches(topK);
+	}
+
+	/**
+	 * Stores in every node's myTopWords the topK heaviest words of its
+	 * subtrie, working bottom-up so each list is merged from the node's own
+	 * word and its children's lists.
+	 */
+	protected void precomputeTopMatches(int topK) {
+		myTopK = topK;
+		if (topK > 0)
+			precomputeTopMatches(myRoot);
+	}
+
+	private void precomputeTopMatches(Node curr) {
+		for (Node child : curr.children.values()) {
+			precomputeTopMatches(child);
+		}
+		curr.myTopWords = mergeTopWords(curr);
+	}
+
+	/**
+	 * Returns the myTopK heaviest words among curr itself and its children's
+	 * myTopWords, which must already be up to date.
+	 */
+	protected Node[] mergeTopWords(Node curr) {
+		if (!curr.isWord && curr.children.size() == 1) {
+			// a chain node has the same completions as its only child
+			return curr.children.values().iterator().next().myTopWords;
+		}
+		ArrayList<Node> candidates = new ArrayList<Node>();
+		if (curr.isWord)
+			candidates.add(curr);
+		for (Node child : curr.children.values()) {
+			for (Node word : child.myTopWords)
+				candidates.add(word);
+		}
+		Collections.sort(candidates, Collections.reverseOrder());
+		int size = Math.min(myTopK, candidates.size());
+		return candidates.subList(0, size).toArray(new Node[size]);
+	}
+
 	/**
 	 * Add the word with given weight to the trie. If word already exists in the
 	 * trie, no new nodes should be created, but the weight of word should be
 	 * updated.
 	 * 
-	 * In adding a word, this method should do the following: Create any
-	 * necessary intermediate nodes if they do not exist. Update the
-	 * subtreeMaxWeight of all nodes in the path from root to the node
-	 * representing word. Set the value of myWord, myWeight, isWord, and
-	 * mySubtreeMaxWeight of the node corresponding to the added word to the
-	 * correct values
-	 * 
 	 * @throws a
 	 *             NullPointerException if word is null
 	 * @throws an
 	 *             IllegalArgumentException if weight is negative.
 	 */
 	private void add(String word, double weight) {
-		// TODO: Implement add
+		insert(word, weight);
+	}
+
+	/**
+	 * Inserts word with the given weight, creating any nodes it needs, or
+	 * changes its weight if it is already in the trie. Only the nodes on the
+	 * path from the root to word are touched: when the weight goes up, the
+	 * walk back up stops at the first ancestor whose mySubtreeMaxWeight is
+	 * already at least weight, and when it goes down, at the first ancestor
+	 * whose maximum does not change. With precomputed top matches, the lists
+	 * of every node on the path are merged again.
+	 * 
+	 * Updates must not run concurrently with each other or with queries.
+	 * 
+	 * @throws NullPointerException
+	 *             if word is null
+	 * @throws IllegalArgumentException
+	 *             if weight is negative
+	 */
+	public void insert(String word, double weight) {
+		if (word == null)
+			throw new NullPointerException("word is null!");
+		if (weight < 0)
+			throw new IllegalArgumentException(weight + " is negative: illegal argument!");
 		Node curr = myRoot;
-		for(int i = 0; i < word.length(); i++){
-			if(curr.mySubtreeMaxWeight < weight){
-				curr.mySubtreeMaxWeight = weight;
-			}
-//			if(curr.parent == null){
-//				curr.prefix = "";
-//			}else{
-//				curr.prefix = curr.parent.prefix + curr.myInfo;
-//			}
-//			System.out.println("curr_myinfo: "+ curr.myInfo);
-//			System.out.println("curr_mySubtreeMaxWeight: " + curr.mySubtreeMaxWeight);
-//			System.out.println();
-			if(! curr.children.containsKey(word.charAt(i))){
-				curr.children.put(word.charAt(i), new Node(word.charAt(i), curr, 0));
+		for (int i = 0; i < word.length(); i++) {
+			Node child = curr.children.get(word.charAt(i));
+			if (child == null) {
+				child = new Node(word.charAt(i), curr, 0);
+				curr.addChild(child);
 			}
-			curr = curr.children.get(word.charAt(i));		
+			curr = child;
 		}
-		
-//		System.out.println("curr_myinfo: " + curr.myInfo);
+		double oldWeight = curr.isWord ? curr.myWeight : 0;
+		curr.isWord = true;
 		curr.myWord = word;
 		curr.myWeight = weight;
-		if(curr.mySubtreeMaxWeight < weight){
-			curr.mySubtreeMaxWeight = weight;
-		}
-//		curr.prefix = curr.parent.prefix + curr.myInfo;
-//		System.out.println("word node(myword): " + curr.myWord);
-//		System.out.println("word node(myweight): " + curr.myWeight);
-//		System.out.println("word node(mySubtreeMaxWeight): " + curr.mySubtreeMaxWeight);
-//		System.out.println();
-		if(curr.isWord != false){
-			if(curr.mySubtreeMaxWeight > weight){
-				// check whether word node needs to change mySubtreeMaxWeight or not
-				// based on whether it has children or not 
-				// and if it has, the max weight of its children
-				if(curr.children != null){
-					double childrenMax = findSubtreeMaxWeight(curr);
-					if(childrenMax < curr.mySubtreeMaxWeight){
-						curr.mySubtreeMaxWeight = Math.max(childrenMax, weight);
-					}
-				}else{
-					curr.mySubtreeMaxWeight = weight;
-				}
-				
-				// search upward until to the root node
-				while(curr.parent != null){
-					curr = curr.parent;
-					double childrenMax = findSubtreeMaxWeight(curr);
-					curr.mySubtreeMaxWeight = Math.max(curr.myWeight, childrenMax);
-				}
-			}			
-		}else{
-			curr.isWord = true;
-		}		
-				
+		repair(curr, oldWeight, weight);
+	}
+
+	/**
+	 * Changes the weight of a word already in the trie, as insert does.
+	 * 
+	 * @return true if word was in the trie, false (leaving the trie
+	 *         unchanged) if it was not
+	 * @throws NullPointerException
+	 *             if word is null
+	 * @throws IllegalArgumentException
+	 *             if weight is negative
+	 */
+	public boolean updateWeight(String word, double weight) {
+		if (weight < 0)
+			throw new IllegalArgumentException(weight + " is negative: illegal argument!");
+		Node curr = findWord(word);
+		if (curr == null)
+			return false;
+		double oldWeight = curr.myWeight;
+		curr.myWeight = weight;
+		repair(curr, oldWeight, weight);
+		return true;
+	}
+
+	/**
+	 * Removes word from the trie, along with any nodes that no longer lead to
+	 * a word, and repairs the maxima on the path as insert does.
+	 * 
+	 * @return true if word was in the trie, false if it was not
+	 * @throws NullPointerException
+	 *             if word is null
+	 */
+	public boolean remove(String word) {
+		Node curr = findWord(word);
+		if (curr == null)
+			return false;
+		double oldWeight = curr.myWeight;
+		curr.isWord = false;
+		curr.myWord = null;
+		curr.myWeight = -1;
+		while (curr != myRoot && !curr.isWord && curr.children.isEmpty()) {
+			curr.parent.children.remove(curr.myInfo.charAt(0));
+			curr = curr.parent;
+		}
+		repair(curr, oldWeight, 0);
+		return true;
+	}
+
+	/**
+	 * Returns the node for word, or null if word is not in the trie.
+	 */
+	private Node findWord(String word) {
+		if (word == null)
+			throw new NullPointerException("word is null!");
+		Node curr = myRoot;
+		for (int i = 0; i < word.length() && curr != null; i++) {
+			curr = curr.children.get(word.charAt(i));
+		}
+		return curr != null && curr.isWord ? curr : null;
+	}
+
+	/**
+	 * Restores mySubtreeMaxWeight (and myTopWords, if precomputed) from curr
+	 * up to the root after a word at or below curr changed from oldWeight to
+	 * newWeight.
+	 */
+	private void repair(Node curr, double oldWeight, double newWeight) {
+		if (myTopK > 0) {
+			for (; curr != null; curr = curr.parent) {
+				curr.mySubtreeMaxWeight = maxWeight(curr);
+				curr.myTopWords = mergeTopWords(curr);
+			}
+		} else if (newWeight >= oldWeight) {
+			// maxima can only grow, and only up to newWeight
+			for (; curr != null && curr.mySubtreeMaxWeight < newWeight; curr = curr.parent) {
+				curr.mySubtreeMaxWeight = newWeight;
+			}
+		} else {
+			// only maxima that came from the old weight can shrink
+			for (; curr != null; curr = curr.parent) {
+				double max = maxWeight(curr);
+				if (max == curr.mySubtreeMaxWeight)
+					break;
+				curr.mySubtreeMaxWeight = max;
+			}
+		}
+	}
+
+	/**
+	 * Returns the largest weight among curr's own word and its children's
+	 * subtries
+	 */
+	private double maxWeight(Node curr) {
+		double max = findSubtreeMaxWeight(curr);
+		return curr.isWord ? Math.max(max, curr.myWeight) : max;
 	}
 	
 	public double findSubtreeMaxWeight(Node curr){
@@ -170,12 +316,21 @@ public class TrieAutocomplete implements Autocompletor {
 	 */
 	public Iterable<String> topMatches(String prefix, int k) {
 		// TODO: Implement topKMatches
+		return weightedTopMatches(prefix, k);
+	}
+
+	/**
+	 * Returns the same matches as topMatches, with the weights of their
+	 * nodes.
+	 */
+	@Override
+	public MatchList weightedTopMatches(String prefix, int k) {
 		if(prefix == null){
 			throw new NullPointerException("prefix is null!");
 		}
 		if (k < 0)
 			throw new IllegalArgumentException("Illegal value of k:"+k);
-		LinkedList<String> ret = new LinkedList<String>();
+		MatchList ret = new MatchList(0);
 		if(k == 0){
 			return ret;
 		}
@@ -187,6 +342,25 @@ public class TrieAutocomplete implements Autocompletor {
 				return ret;
 			}
 		}
+		return topMatches(curr, k);
+	}
+
+	/**
+	 * Returns the k heaviest words in the subtrie rooted at curr, in
+	 * descending weight order.
+	 */
+	private MatchList topMatches(Node curr, int k) {
+		MatchList ret = new MatchList(Math.min(k, 16));
+		if(k == 0){
+			return ret;
+		}
+		if(k <= myTopK){
+			int numResults = Math.min(k, curr.myTopWords.length);
+			for(int j = 0; j < numResults; j++){
+				ret.add(curr.myTopWords[j].myWord, curr.myTopWords[j].myWeight);
+			}
+			return ret;
+		}
 		PriorityQueue<Node> pq1 = new PriorityQueue<Node>(1000, new Node.ReverseSubtreeMaxWeightComparator());
 		PriorityQueue<Node> pq2 = new PriorityQueue<Node>(k);
 		pq1.add(curr);
@@ -213,8 +387,10 @@ public class TrieAutocomplete implements Autocompletor {
 		}
 		int numResults = Math.min(pq2.size(), k);
 		for(int j = 0; j < numResults; j++){
-			ret.addFirst(pq2.remove().myWord);
+			Node word = pq2.remove();
+			ret.add(word.myWord, word.myWeight);
 		}
+		ret.reverse();
 		return ret;
 	}
 
@@ -242,6 +418,17 @@ public class TrieAutocomplete implements Autocompletor {
 				return "";
 			}
 		}
+		return topMatch(curr, prefix);
+	}
+
+	/**
+	 * Returns the heaviest word in the subtrie rooted at curr, the node for
+	 * prefix.
+	 */
+	private String topMatch(Node curr, String prefix) {
+		if(myTopK > 0){
+			return curr.myTopWords.length > 0 ? curr.myTopWords[0].myWord : "";
+		}
 //		System.out.println("prefix: " + curr.myInfo);
 		double max = curr.mySubtreeMaxWeight;
 //		System.out.println("prefix max: " + max);
@@ -262,6 +449,79 @@ public class TrieAutocomplete implements Autocompletor {
 		}
 	}
 
+	/**
+	 * Returns a CompletionSession that keeps the trie node for every prefix
+	 * of its text, so append follows one child link and backspace pops back
+	 * to the parent prefix's node. The session must not be used after the
+	 * trie is changed by insert, updateWeight or remove.
+	 */
+	@Override
+	public CompletionSession newSession() {
+		return new TrieSession();
+	}
+
+	private class TrieSession implements CompletionSession {
+		private final StringBuilder myText = new StringBuilder();
+
+		/**
+		 * myPath[i] is the node for the first i characters of myText, for i
+		 * up to myDepth; the longer prefixes have no node
+		 */
+		private Node[] myPath = new Node[16];
+		private int myDepth;
+
+		TrieSession() {
+			myPath[0] = myRoot;
+		}
+
+		public void append(char ch) {
+			if(myDepth == myText.length()){
+				Node child = myPath[myDepth].children.get(ch);
+				if(child != null){
+					if(myDepth + 1 == myPath.length){
+						myPath = Arrays.copyOf(myPath, 2 * myPath.length);
+					}
+					myPath[++myDepth] = child;
+				}
+			}
+			myText.append(ch);
+		}
+
+		public void backspace() {
+			if(myText.length() == 0){
+				return;
+			}
+			if(myDepth == myText.length()){
+				myPath[myDepth--] = null;
+			}
+			myText.setLength(myText.length() - 1);
+		}
+
+		public String getText() {
+			return myText.toString();
+		}
+
+		public Iterable<String> topMatches(int k) {
+			return weightedTopMatches(k);
+		}
+
+		public MatchList weightedTopMatches(int k) {
+			if (k < 0)
+				throw new IllegalArgumentException("Illegal value of k:"+k);
+			if(myDepth < myText.length()){
+				return new MatchList(0);
+			}
+			return TrieAutocomplete.this.topMatches(myPath[myDepth], k);
+		}
+
+		public String topMatch() {
+			if(myDepth < myText.length()){
+				return "";
+			}
+			return TrieAutocomplete.this.topMatch(myPath[myDepth], getText());
+		}
+	}
+
 	/**
 	 * Return the weight of a given term. If term is not in the dictionary,
 	 * return 0.0
@@ -280,159 +540,216 @@ public class TrieAutocomplete implements Autocompletor {
 	}
 
 	/**
-	 * Optional: Returns the highest weighted matches within k edit distance of
-	 * the word. If the word is in the dictionary, then return an empty list.
+	 * Returns the k heaviest words that start with something within maxEdits
+	 * insertions, deletions or substitutions of prefix, in descending weight
+	 * order, e.g. topMatches("aple", 1, k) includes "apple" and "ample".
 	 * 
-	 * @param word
-	 *            The word to spell-check
-	 * @param dist
-	 *            Maximum edit distance to search
-	 * @param k
-	 *            Number of results to return
-	 * @return Iterable in descending weight order of the matches
+	 * Each node is reached with one row of the edit-distance table between
+	 * prefix and the path to it, computed from its parent's row, which
+	 * simulates a Levenshtein automaton for prefix. Nodes are searched best
+	 * first, in a heap keyed on mySubtreeMaxWeight, as in topMatches, so the
+	 * heaviest matches are found first and the search stops as soon as no node
+	 * left in the heap can beat the k-th best word found. A node is not added
+	 * once every entry of its row exceeds maxEdits, or when it is deeper than
+	 * prefix.length() + maxEdits. When no entry of a row is below maxEdits,
+	 * only children labelled with a character of prefix can stay within
+	 * maxEdits, so those are looked up directly, skipping labels the node's
+	 * child mask rules out, instead of visiting every child. Once a path is
+	 * within maxEdits of the whole prefix, every word below it matches, and
+	 * its heaviest words are taken as in topMatches. The rows are kept in one
+	 * array per query, m + 1 entries per node reached.
+	 * 
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 * @throws IllegalArgumentException
+	 *             if maxEdits or k is negative
+	 */
+	public MatchList topMatches(String prefix, int maxEdits, int k) {
+		if(prefix == null){
+			throw new NullPointerException("prefix is null!");
+		}
+		if (k < 0)
+			throw new IllegalArgumentException("Illegal value of k:"+k);
+		if (maxEdits < 0)
+			throw new IllegalArgumentException("Illegal value of maxEdits:"+maxEdits);
+		PriorityQueue<Node> best = new PriorityQueue<Node>(Math.max(k, 1));
+		if(k > 0){
+			fuzzySearch(prefix, maxEdits, k, best);
+		}
+		MatchList ret = new MatchList(best.size());
+		while(!best.isEmpty()){
+			Node word = best.remove();
+			ret.add(word.myWord, word.myWeight);
+		}
+		ret.reverse();
+		return ret;
+	}
+
+	/**
+	 * Searches the trie best first for words within maxEdits of prefix,
+	 * keeping the k heaviest in best. Node i of the search is nodes[i], at
+	 * depth depths[i], with its row of the edit-distance table in
+	 * rows[i * (m + 1)] up to rows[(i + 1) * (m + 1) - 1].
+	 * 
+	 * Reading a child costs a few cache misses, so children are only all
+	 * read while the row still has an entry below maxEdits. Once every entry
+	 * is at least maxEdits, a child can only stay within maxEdits by matching
+	 * prefix.charAt(j) for some j whose entry is exactly maxEdits, so just
+	 * those children are looked up.
 	 */
-//	public Iterable<String> spellCheck(String word, int dist, int k) {
-//		if(dist <= 0){
-//			throw new IllegalArgumentException("dist is not positive");
-//		}
-//		if(k < 0){
-//			throw new IllegalArgumentException("k is negative!");
-//		}
-//		myRoot.LevenshteinDistanceRow = new int[word.length() + 1];
-//		for(int i = 0; i < myRoot.LevenshteinDistanceRow.length; i++){
-//			myRoot.LevenshteinDistanceRow[i] = i;
-//		}
-//		
-//		Node curr = myRoot;
-//		PriorityQueue<Node> pq = new PriorityQueue<Node>(k);
-//		
-//		for(char ch : curr.children.keySet()){
-////			System.out.println("curr_info: " + curr.myInfo);
-////			System.out.println("curr_prefix: " + curr.prefix);
-//			traverse(curr.children.get(ch), pq, word, k, dist);
-//		}
-//		
-//		LinkedList<String> ret = new LinkedList<String>();
-//		int numResults = Math.min(pq.size(), k);
-//		for(int j = 0; j < numResults; j++){
-//			ret.addFirst(pq.remove().myWord);
-//		}
-//		return ret;
-//	}
-//	
-//	public void traverse(Node curr, PriorityQueue<Node> pq, String word, int k, int dist){
-////		for(int m = 0; m < curr.parent.LevenshteinDistanceRow.length; m++){
-////			System.out.println(curr.parent.LevenshteinDistanceRow[m]);
-////		}
-//		int distance = LevenshteinDistance(curr, curr.prefix, word);
-////		for(int m = 0; m < curr.LevenshteinDistanceRow.length; m++){
-////			System.out.println(curr.LevenshteinDistanceRow[m]);
-////		}
-////		System.out.println("curr_prefix: " + curr.prefix);
-////		System.out.println("curr_distance: " + distance);
-//		if(curr.isWord == true && distance <= dist){
-//			if(pq.size() < k){
-//				pq.add(curr);
-//			}else{
-//				if(pq.peek().myWeight < curr.myWeight){
-//					pq.remove();
-//					pq.add(curr);
-//				}
-//			}
-//		}
-//	
-//		if(curr.children.size() == 0){
-//			return;
-//		}else{
-//			for(char ch : curr.children.keySet()){
-////				System.out.println("ch: " + ch);
-//				traverse(curr.children.get(ch), pq, word, k, dist);
-//			}
-//	    }		
-//	}
-//	
-//	public int LevenshteinDistance(Node curr, String s, String t){
-//		int[] v0 = curr.parent.LevenshteinDistanceRow;
-//		int[] v1 = new int[t.length() + 1];
-//				
-//		v1[0] = s.length();
-//		for(int j = 0; j < t.length(); j++){
-//			int cost = 0;
-//			if(s.charAt(s.length() - 1) != t.charAt(j)){
-//				cost = 1;
-//			}
-//			v1[j + 1] = Math.min(Math.min(v1[j] + 1, v0[j + 1] + 1), v0[j] + cost);
-//		}
-//			
-//		curr.LevenshteinDistanceRow = v1;
-//		
-//		if(s.equals(t)){
-//			return 0;
-//		}
-//		if(s.length() == 0){
-//			return t.length();
-//		}
-//		if(t.length() == 0){
-//			return s.length();
-//		}
-//		
-//		return v1[t.length()];
-//	}
-//	private String[] iterToArr(Iterable<String> it) {
-//		ArrayList<String> list = new ArrayList<String>();
-//		for (String s: it)
-//			list.add(s);
-//		return list.toArray(new String[0]);
-//	}
-//	
-//	public static void main(String[] args) throws FileNotFoundException{
-//		Term[] terms =
-//				new Term[] {new Term("ape", 6), 
-//				new Term("app", 4), 
-//				new Term("ban", 2),
-//				new Term("bat", 3),
-//				new Term("bee", 5),
-//				new Term("car", 7),
-//				new Term("car", 2),
-//				new Term("cat", 1)};
-//		String[] names= {"ape", "app", "ban", "bat", "bee", "car", "cat"};
-//		double[] weights = {6, 4, 2, 3, 5, 7, 1};
-//		TrieAutocomplete ta = new TrieAutocomplete(names,weights);
-////		String[] queries = {"", "a", "ap", "b", "ba", "c", "ca", "cat", "d", " "};
-//////		System.out.println(ta.myRoot.mySubtreeMaxWeight);
-////		for(int i = 0; i < queries.length; i++){
-////			String query = queries[i];
-////			String reported = ta.topMatch(query);
-//////			System.out.println(reported);
-////		}
-//		String[] queries = {"", "", "", "", "a", "ap", "b", "ba", "d"};
-//		int[] ks = {8, 0, 2, 3, 1, 1, 2, 2, 100};
-//		for(int i = 0; i < queries.length; i++){
-//			String query = queries[i];
-//			String[] reported = ta.iterToArr(ta.topMatches(query, ks[i]));
-//			System.out.println(Arrays.toString(reported));
-//		}
-//		String[] reported = ta.iterToArr(ta.spellCheck("a", 2, 10));
-//		System.out.println(Arrays.toString(reported));	
-//		String pfile = "data/wiktionary.txt";
-//		File f = new File(pfile);
-//		Scanner s = new Scanner(f);
-//		int count = Integer.parseInt(s.nextLine());
-//		String[] names = new String[count];
-//		double[] weights = new double[count];
-//		int i = 0;
-//		while(s.hasNextLine()){
-//			String[] info = s.nextLine().trim().split("\\s+");
-//			weights[i] = Double.parseDouble(info[0]);
-//			names[i] = info[1];
-//			i++;
-//		}
-//		TrieAutocomplete ta = new TrieAutocomplete(names,weights);
-//		String[] queries = {"whut", "efect", "heyy", "gurl"};
-//		for(int j = 0; j < queries.length; j++){
-//			String query = queries[j];
-//			String[] reported = ta.iterToArr(ta.spellCheck(query, 1, 5));
-////			System.out.println(Arrays.toString(reported));
-////		}
-//	}
+	private void fuzzySearch(String prefix, int maxEdits, int k, PriorityQueue<Node> best) {
+		int m = prefix.length();
+		int width = m + 1;
+		int maxDepth = m + maxEdits;
+		Node[] nodes = new Node[64];
+		int[] depths = new int[nodes.length];
+		int[] rows = new int[nodes.length * width];
+		IndexHeap heap = new IndexHeap(64, true);
+		nodes[0] = myRoot;
+		for(int j = 0; j <= m; j++){
+			rows[j] = j;
+		}
+		int count = 1;
+		heap.add(0, myRoot.mySubtreeMaxWeight);
+		while(!heap.isEmpty()){
+			if(best.size() == k && heap.peekKey() <= best.peek().myWeight){
+				break;
+			}
+			int i = heap.remove();
+			Node curr = nodes[i];
+			int depth = depths[i];
+			int row = i * width;
+			if(rows[row + m] <= maxEdits){
+				collectTopWords(curr, k, best);
+				continue;
+			}
+			if(depth == maxDepth){
+				continue;
+			}
+			int min = rows[row];
+			for(int j = 1; j < m; j++){
+				min = Math.min(min, rows[row + j]);
+			}
+			if(min < maxEdits){
+				for(Map.Entry<Character, Node> child : curr.children.entrySet()){
+					if(count == nodes.length){
+						nodes = Arrays.copyOf(nodes, 2 * count);
+						depths = Arrays.copyOf(depths, 2 * count);
+						rows = Arrays.copyOf(rows, 2 * count * width);
+					}
+					if(fuzzyRow(prefix, child.getKey(), rows, row, count * width, depth + 1) <= maxEdits){
+						count = push(child.getValue(), depth + 1, count, nodes, depths, heap, k, best);
+					}
+				}
+				continue;
+			}
+			// every entry of the row is at least maxEdits
+			for(int j = 0; j < m; j++){
+				char ch = prefix.charAt(j);
+				if(rows[row + j] != maxEdits || rowHas(rows, row, prefix, ch, j, maxEdits)){
+					continue;
+				}
+				Node child = curr.mayHaveChild(ch) ? curr.children.get(ch) : null;
+				if(child == null){
+					continue;
+				}
+				if(count == nodes.length){
+					nodes = Arrays.copyOf(nodes, 2 * count);
+					depths = Arrays.copyOf(depths, 2 * count);
+					rows = Arrays.copyOf(rows, 2 * count * width);
+				}
+				fuzzyRow(prefix, ch, rows, row, count * width, depth + 1);
+				count = push(child, depth + 1, count, nodes, depths, heap, k, best);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether an entry of the row at rows[row] before j, for the same
+	 * character ch of prefix, is maxEdits, so that ch was already looked up
+	 */
+	private static boolean rowHas(int[] rows, int row, String prefix, char ch, int j, int maxEdits) {
+		for(int i = 0; i < j; i++){
+			if(prefix.charAt(i) == ch && rows[row + i] == maxEdits){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Fills the row at rows[next] for a child labelled ch, at the given
+	 * depth, from its parent's row at rows[row], and returns its smallest
+	 * entry.
+	 */
+	private static int fuzzyRow(String prefix, char ch, int[] rows, int row, int next, int depth) {
+		rows[next] = depth;
+		int min = depth;
+		for(int j = 1; j <= prefix.length(); j++){
+			int cost = prefix.charAt(j - 1) == ch ? 0 : 1;
+			rows[next + j] = Math.min(Math.min(rows[next + j - 1] + 1, rows[row + j] + 1), rows[row + j - 1] + cost);
+			min = Math.min(min, rows[next + j]);
+		}
+		return min;
+	}
+
+	/**
+	 * Adds child, whose row has been filled in, to the heap as search node
+	 * count, unless it cannot beat the k-th best word, and returns the new
+	 * number of search nodes.
+	 */
+	private static int push(Node child, int depth, int count, Node[] nodes, int[] depths, IndexHeap heap, int k,
+			PriorityQueue<Node> best) {
+		if(best.size() == k && child.mySubtreeMaxWeight <= best.peek().myWeight){
+			return count;
+		}
+		nodes[count] = child;
+		depths[count] = depth;
+		heap.add(count, child.mySubtreeMaxWeight);
+		return count + 1;
+	}
+
+	/**
+	 * Adds the heaviest words below curr to best, keeping the k heaviest.
+	 * Every node enters the search heap at most once, from its parent, and
+	 * the children of a collected node are never added, so the subtrees
+	 * collected in one search are disjoint and no word is offered twice.
+	 */
+	private void collectTopWords(Node curr, int k, PriorityQueue<Node> best) {
+		if(k <= myTopK){
+			for(Node word : curr.myTopWords){
+				if(!offer(word, k, best)){
+					break;
+				}
+			}
+			return;
+		}
+		PriorityQueue<Node> pq = new PriorityQueue<Node>(16, new Node.ReverseSubtreeMaxWeightComparator());
+		pq.add(curr);
+		while(!pq.isEmpty()){
+			curr = pq.remove();
+			if(best.size() == k && curr.mySubtreeMaxWeight <= best.peek().myWeight){
+				break;
+			}
+			if(curr.isWord){
+				offer(curr, k, best);
+			}
+			pq.addAll(curr.children.values());
+		}
+	}
+
+	/**
+	 * Adds word to best if it is among the k heaviest, and returns whether it
+	 * was.
+	 */
+	private boolean offer(Node word, int k, PriorityQueue<Node> best) {
+		if(best.size() == k && word.myWeight <= best.peek().myWeight){
+			return false;
+		}
+		if(best.size() == k){
+			best.remove();
+		}
+		best.add(word);
+		return true;
+	}
 }
@@ -0,0 +1,145 @@
+package jmh;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Headless JMH benchmarks of the Autocompletor implementations over
+ * generated dictionaries, as a replacement for timing by hand with
+ * AutocompletorBenchmark. Each run covers every combination of
+ * implementation, dictionary size, prefix length and k, with warmup
+ * iterations and separate forks, and measures build time, query throughput
+ * and the query latency distribution. Adding -prof gc reports the
+ * allocation rate per query, and -rf json writes every result to a file
+ * that can be compared across versions.
+ *
+ * JMH does not allow benchmarks in the default package, where the
+ * autocomplete classes live, so they are reached through MethodHandles
+ * looked up by class name. The handle call costs a few nanoseconds, which
+ * is small next to a query. To build and run, with the JMH jars (jmh-core,
+ * jmh-generator-annprocess and their dependencies) in $JMH:
+ *
+ * <pre>
+ * javac -d out *.java
+ * javac -cp "out:$JMH/*" -d out jmh/AutocompletorBenchmarks.java
+ * java -cp "out:$JMH/*" org.openjdk.jmh.Main AutocompletorBenchmarks -prof gc -rf json -rff results.json
+ * </pre>
+ *
+ * A subset can be chosen with JMH's -p option, e.g. -p impl=TrieAutocomplete
+ * -p size=100000.
+ *
+ */
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class AutocompletorBenchmarks {
+
+	private static final MethodType CONSTRUCTOR = MethodType.methodType(void.class, String[].class, double[].class);
+
+	@Param({ "BruteAutocomplete", "BinarySearchAutocomplete", "TrieAutocomplete", "TernarySearchTreeAutocomplete",
+			"FSTAutocomplete", "OffHeapTrieAutocomplete" })
+	public String impl;
+
+	@Param({ "10000", "100000", "1000000" })
+	public int size;
+
+	private String[] myTerms;
+	private double[] myWeights;
+	private MethodHandle myConstructor;
+
+	@Setup(Level.Trial)
+	public void generate() throws ReflectiveOperationException {
+		Random random = new Random(size);
+		myTerms = new String[size];
+		myWeights = new double[size];
+		for (int i = 0; i < size; i++) {
+			// about 1/j of the words start with the j-th letter, as in text
+			int first = (int) Math.min(25, Math.pow(26, random.nextDouble()) - 1);
+			StringBuilder sb = new StringBuilder().append((char) ('a' + first));
+			for (int len = 3 + random.nextInt(9); len > 0; len--)
+				sb.append((char) ('a' + random.nextInt(26)));
+			myTerms[i] = sb.append(i).toString();
+			myWeights[i] = Math.floor(1E9 / (1 + random.nextInt(size)));
+		}
+		Class<?> type = Class.forName(impl);
+		myConstructor = MethodHandles.publicLookup().findConstructor(type, CONSTRUCTOR);
+	}
+
+	/**
+	 * Time to build the implementation from the terms and weights
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 2, batchSize = 1)
+	@Measurement(iterations = 5, batchSize = 1)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Object build() throws Throwable {
+		return myConstructor.invoke(myTerms, myWeights);
+	}
+
+	/**
+	 * A built implementation and the prefixes to query it with
+	 */
+	@State(Scope.Benchmark)
+	public static class Queries {
+		@Param({ "1", "2", "4" })
+		public int prefixLength;
+
+		@Param({ "1", "10" })
+		public int k;
+
+		private Object myAuto;
+		private MethodHandle myTopMatches;
+		private String[] myPrefixes;
+		private int myNext;
+
+		@Setup(Level.Trial)
+		public void build(AutocompletorBenchmarks dictionary) throws Throwable {
+			myAuto = dictionary.myConstructor.invoke(dictionary.myTerms, dictionary.myWeights);
+			myTopMatches = MethodHandles.publicLookup().findVirtual(myAuto.getClass(), "topMatches",
+					MethodType.methodType(Iterable.class, String.class, int.class));
+			Random random = new Random(prefixLength);
+			myPrefixes = new String[1024];
+			for (int i = 0; i < myPrefixes.length; i++) {
+				String term = dictionary.myTerms[random.nextInt(dictionary.myTerms.length)];
+				myPrefixes[i] = term.substring(0, Math.min(prefixLength, term.length()));
+			}
+		}
+
+		String nextPrefix() {
+			myNext = (myNext + 1) & (myPrefixes.length - 1);
+			return myPrefixes[myNext];
+		}
+	}
+
+	/**
+	 * topMatches throughput and latency distribution, consuming every match
+	 */
+	@Benchmark
+	@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void topMatches(Queries queries, Blackhole blackhole) throws Throwable {
+		Iterable<?> matches = (Iterable<?>) queries.myTopMatches.invoke(queries.myAuto, queries.nextPrefix(),
+				queries.k);
+		for (Object match : matches)
+			blackhole.consume(match);
+	}
+}